@@ -0,0 +1,88 @@
+package chtml;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Interpreted tree against the CHTML_COMPILE backend on the bundled templates. Both render the same parse into
+ * a reused StringBuilder, so the numbers cover rendering only, not parsing, caching or I/O.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class TemplateRenderBenchmark {
+    @Param({"home.chtml", "contact.chtml", "contact_response.chtml"})
+    public String template;
+
+    @Param({"interpreted", "compiled"})
+    public String backend;
+
+    // length of the list the home template loops over
+    @Param({"10", "100"})
+    public int items;
+
+    private TemplateNode root;
+    private Map<String, Object> context;
+    private final StringBuilder out = new StringBuilder(8 * 1024);
+
+    @Setup
+    public void setUp() throws IOException {
+        TemplateNode tree = ChtmlEngine.parse(load(template));
+        root = switch (backend) {
+            case "interpreted" -> tree;
+            case "compiled" -> TemplateCompiler.compile(tree);
+            default -> throw new IllegalArgumentException("Unknown backend: " + backend);
+        };
+        // compile() falls back to the tree on failure, which would quietly compare the interpreter with itself
+        if (backend.equals("compiled") && root == tree) {
+            throw new IllegalStateException("Could not compile " + template);
+        }
+
+        List<String> list = new ArrayList<>();
+        for (int i = 0; i < items; i++) list.add("item " + i);
+
+        context = new HashMap<>();
+        context.put("name", "Guest");
+        context.put("count", items);
+        context.put("items", list);
+        context.put("email", "guest@example.com");
+        context.put("message", "Hello from the benchmark");
+        context.put("info", "Thanks, we will get back to you.");
+        context.put("receivedAt", "2026-01-01T00:00:00Z");
+    }
+
+    @Benchmark
+    public int render() throws IOException {
+        out.setLength(0);
+        root.render(context, out);
+        return out.length();
+    }
+
+    private static String load(String name) throws IOException {
+        try (InputStream in = TemplateRenderBenchmark.class.getClassLoader().getResourceAsStream("templates/" + name)) {
+            if (in == null) throw new IOException("Template not found: " + name);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
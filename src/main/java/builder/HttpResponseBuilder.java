@@ -1,8 +1,13 @@
 package builder;
 
+import model.ChunkedBody;
+import model.FileBody;
+import model.HeaderBlock;
 import model.HttpResponse;
+import model.StreamBody;
 
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -12,6 +17,8 @@ public class HttpResponseBuilder implements IHttpResponseBuilder {
     private final Map<String, String> headers = new HashMap<>();
     private String body = null;
     private byte[] bodyBytes = null;
+    private StreamBody streamBody = null;
+    private HeaderBlock headerBlock = null;
 
     @Override
     public IHttpResponseBuilder setStatusCode(int code) {
@@ -19,11 +26,15 @@ public class HttpResponseBuilder implements IHttpResponseBuilder {
         switch (code) {
             case 200 -> this.statusMessage = "OK";
             case 201 -> this.statusMessage = "Created";
+            case 206 -> this.statusMessage = "Partial Content";
+            case 304 -> this.statusMessage = "Not Modified";
             case 400 -> this.statusMessage = "Bad Request";
             case 401 -> this.statusMessage = "Unauthorized";
             case 403 -> this.statusMessage = "Forbidden";
             case 404 -> this.statusMessage = "Not Found";
             case 405 -> this.statusMessage = "Method Not Allowed";
+            case 413 -> this.statusMessage = "Payload Too Large";
+            case 416 -> this.statusMessage = "Range Not Satisfiable";
             case 500 -> this.statusMessage = "Internal Server Error";
             case 503 -> this.statusMessage = "Service Unavailable";
             default -> this.statusMessage = "Unknown";
@@ -40,14 +51,11 @@ public class HttpResponseBuilder implements IHttpResponseBuilder {
     @Override
     public IHttpResponseBuilder setBody(String body) {
         this.body = body;
-        this.bodyBytes = null;
+        this.streamBody = null;
 
-        if (body != null) {
-            int length = body.getBytes(StandardCharsets.UTF_8).length;
-            headers.put("Content-Length", String.valueOf(length));
-        } else {
-            headers.put("Content-Length", "0");
-        }
+        // encoded once here; the writer sends these bytes instead of re-encoding the String
+        this.bodyBytes = body == null ? null : body.getBytes(StandardCharsets.UTF_8);
+        headers.put("Content-Length", String.valueOf(bodyBytes == null ? 0 : bodyBytes.length));
 
         return this;
     }
@@ -55,12 +63,51 @@ public class HttpResponseBuilder implements IHttpResponseBuilder {
     public IHttpResponseBuilder setBodyBytes(byte[] bytes) {
         this.bodyBytes = (bytes == null || bytes.length == 0) ? null : bytes.clone();
         this.body = null;
+        this.streamBody = null;
+        headers.put("Content-Length", String.valueOf(bodyBytes == null ? 0 : bodyBytes.length));
+        return this;
+    }
+
+    @Override
+    public IHttpResponseBuilder setBodyFile(Path file, long offset, long length) {
+        this.streamBody = new FileBody(file, offset, length);
+        this.body = null;
+        this.bodyBytes = null;
+        headers.put("Content-Length", String.valueOf(length));
+        return this;
+    }
+
+    @Override
+    public IHttpResponseBuilder setBodyStream(ChunkedBody.BodyWriter writer) {
+        this.streamBody = new ChunkedBody(writer);
+        this.body = null;
+        this.bodyBytes = null;
+        headers.remove("Content-Length");
+        headers.put("Transfer-Encoding", "chunked");
+        return this;
+    }
+
+    @Override
+    public IHttpResponseBuilder setHeaderBlock(HeaderBlock block) {
+        this.headerBlock = block;
+        return this;
+    }
+
+    // No defensive copy: the caller hands over an array nobody will modify (e.g. a cached asset).
+    @Override
+    public IHttpResponseBuilder setSharedBodyBytes(byte[] bytes) {
+        this.bodyBytes = (bytes == null || bytes.length == 0) ? null : bytes;
+        this.body = null;
+        this.streamBody = null;
         headers.put("Content-Length", String.valueOf(bodyBytes == null ? 0 : bodyBytes.length));
         return this;
     }
 
     @Override
     public HttpResponse build() {
-        return new HttpResponse(statusCode, statusMessage, headers, body, bodyBytes);
+        if (headerBlock != null) {
+            for (int i = 0; i < headerBlock.size(); i++) headers.remove(headerBlock.name(i));
+        }
+        return new HttpResponse(statusCode, statusMessage, headers, body, bodyBytes, streamBody, headerBlock);
     }
 }
@@ -1,11 +1,19 @@
 package builder;
 
+import model.ChunkedBody;
+import model.HeaderBlock;
 import model.HttpResponse;
 
+import java.nio.file.Path;
+
 public interface IHttpResponseBuilder {
     IHttpResponseBuilder setStatusCode(int code);
     IHttpResponseBuilder setHeader(String key, String value);
     IHttpResponseBuilder setBody(String body);
     IHttpResponseBuilder setBodyBytes(byte[] bodyBytes);
+    IHttpResponseBuilder setBodyFile(Path file, long offset, long length);
+    IHttpResponseBuilder setBodyStream(ChunkedBody.BodyWriter writer);
+    IHttpResponseBuilder setHeaderBlock(HeaderBlock block);
+    IHttpResponseBuilder setSharedBodyBytes(byte[] bodyBytes);
     HttpResponse build();
 }
\ No newline at end of file
@@ -1,9 +1,12 @@
 package chtml;
 
+import config.ServerConfig;
+
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -11,42 +14,45 @@ import java.util.regex.Pattern;
 
 public final class ChtmlEngine {
     private static final Pattern TAG_PATTERN = Pattern.compile("\\{%\\s*(.*?)\\s*%}|\\{\\{\\s*(.*?)\\s*}}", Pattern.DOTALL);
+    private static final Pattern INTEGER = Pattern.compile("-?\\d+");
+    private static final Pattern DECIMAL = Pattern.compile("-?\\d+\\.\\d+");
+
+    private static final boolean COMPILE = ServerConfig.getBoolean("CHTML_COMPILE", false);
+    private static final TemplateCache CACHE = new TemplateCache(
+            TemplateCache.parseMode(ServerConfig.getString("CHTML_CACHE_MODE", "reload")),
+            text -> COMPILE ? TemplateCompiler.compile(parse(text)) : parse(text));
 
     private ChtmlEngine(){}
 
     public static String render(String templatePath, Map<String, Object> context) throws IOException {
-        String text = readTemplate(templatePath);
-        TemplateNode root = parse(text);
-        Map<String,Object> ctx = context == null ? new HashMap<>() : new HashMap<>(context);
-        return root.render(ctx);
+        TemplateNode root = CACHE.get(templatePath);
+        return root.render(context == null ? Map.of() : context);
     }
 
-    private static String readTemplate(String templatePath) throws IOException {
-        String normalized = templatePath.startsWith("/") ? templatePath.substring(1) : templatePath;
+    public static TemplateNode load(String templatePath) throws IOException {
+        return CACHE.get(templatePath);
+    }
 
-        Path p = Path.of(normalized);
-        if (Files.exists(p) && Files.isRegularFile(p)) {
-            return Files.readString(p);
-        }
+    public static long templateVersion(String templatePath) {
+        return CACHE.version(templatePath);
+    }
 
-        Path guess = Path.of("templates").resolve(normalized);
-        if (Files.exists(guess) && Files.isRegularFile(guess)) {
-            return Files.readString(guess);
-        }
+    public static void render(TemplateNode root, Map<String, Object> context, OutputStream out) throws IOException {
+        Writer w = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        root.render(context == null ? Map.of() : context, w);
+        w.flush();
+    }
 
-        String resPath = "templates/" + normalized;
-        var is = ChtmlEngine.class.getClassLoader().getResourceAsStream(resPath);
-        if (is != null) {
-            try (is) {
-                return new String(is.readAllBytes(), StandardCharsets.UTF_8);
-            }
+    public static Map<String, Object> cacheSnapshot() {
+        Map<String, Object> s = CACHE.snapshot();
+        if (COMPILE) {
+            s.put("compiled", TemplateCompiler.getCompiled());
+            s.put("compileFallbacks", TemplateCompiler.getFallbacks());
         }
-
-        throw new IOException("Template not found: " + templatePath);
+        return s;
     }
 
-
-    private static TemplateNode parse(String text) {
+    static TemplateNode parse(String text) {
         CompositeNode root = new CompositeNode();
         Deque<CompositeNode> stack = new ArrayDeque<>();
         stack.push(root);
@@ -63,12 +69,12 @@ public final class ChtmlEngine {
             String expr = m.group(2); // {{ ... }}
             if (expr != null) {
                 assert stack.peek() != null;
-                stack.peek().add(new TextNode("{{ " + expr + " }}"));
+                stack.peek().add(new ExprNode(compileExpression(expr, loopVars(stack))));
             } else if (tag != null) {
                 String t = tag.trim();
                 if (t.startsWith("if ")) {
                     String cond = t.substring(3).trim();
-                    IfNode ifn = new IfNode(cond);
+                    IfNode ifn = new IfNode(compileExpression(cond, loopVars(stack)));
                     assert stack.peek() != null;
                     stack.peek().add(ifn);
                     stack.push(ifn);
@@ -87,7 +93,7 @@ public final class ChtmlEngine {
                     if (parts.length == 2) {
                         String var = parts[0].trim();
                         String listExpr = parts[1].trim();
-                        ForNode fn = new ForNode(var, listExpr);
+                        ForNode fn = new ForNode(var, compileExpression(listExpr, loopVars(stack)));
                         assert stack.peek() != null;
                         stack.peek().add(fn);
                         stack.push(fn);
@@ -111,42 +117,48 @@ public final class ChtmlEngine {
         return root;
     }
 
-    public static Object resolveExpression(String expr, Map<String, Object> context) {
-        if (expr == null) return null;
+    // Loop variables of the enclosing for-nodes, innermost first.
+    private static List<String> loopVars(Deque<CompositeNode> stack) {
+        List<String> vars = new ArrayList<>();
+        for (CompositeNode n : stack) {
+            if (n instanceof ForNode f) vars.add(f.getLoopVar());
+        }
+        return vars;
+    }
+
+    public static Expression compileExpression(String expr) {
+        return compileExpression(expr, List.of());
+    }
+
+    public static Expression compileExpression(String expr, List<String> loopVars) {
+        if (expr == null) return new LiteralExpression(null);
         expr = expr.trim();
-        if (expr.matches("-?\\d+")) {
-            try { return Long.parseLong(expr); } catch (Exception ignored) {}
+        if (INTEGER.matcher(expr).matches()) {
+            try { return new LiteralExpression(Long.parseLong(expr)); } catch (Exception ignored) {}
         }
-        if (expr.matches("-?\\d+\\.\\d+")) {
-            try { return Double.parseDouble(expr); } catch (Exception ignored) {}
+        if (DECIMAL.matcher(expr).matches()) {
+            try { return new LiteralExpression(Double.parseDouble(expr)); } catch (Exception ignored) {}
         }
-        if ((expr.startsWith("'") && expr.endsWith("'")) || (expr.startsWith("\"") && expr.endsWith("\""))) {
-            return expr.substring(1, expr.length()-1);
+        if (expr.length() >= 2 && ((expr.startsWith("'") && expr.endsWith("'")) || (expr.startsWith("\"") && expr.endsWith("\"")))) {
+            return new LiteralExpression(expr.substring(1, expr.length()-1));
         }
         String[] parts = expr.split("\\.");
-        Object cur = context.get(parts[0]);
-        if (parts.length == 1) return cur;
-        for (int i = 1; i < parts.length; i++) {
-            if (cur == null) return null;
-            String p = parts[i];
-            if (cur instanceof Map) {
-                cur = ((Map<?,?>)cur).get(p);
-            } else {
-                try {
-                    var field = cur.getClass().getDeclaredField(p);
-                    field.setAccessible(true);
-                    cur = field.get(cur);
-                } catch (NoSuchFieldException | IllegalAccessException e) {
-                    try {
-                        String getter = "get" + Character.toUpperCase(p.charAt(0)) + p.substring(1);
-                        cur = cur.getClass().getMethod(getter).invoke(cur);
-                    } catch (Exception ex) {
-                        return null;
-                    }
-                }
-            }
+        String[] path = Arrays.copyOfRange(parts, 1, parts.length);
+        int hops = loopVars.indexOf(parts[0]);
+        if (hops >= 0) return new LoopVariableExpression(parts[0], hops, path);
+        if (parts.length == 1) return new VariableExpression(parts[0]);
+        return new PropertyPathExpression(parts[0], path);
+    }
+
+    public static Object resolveExpression(String expr, Map<String, Object> context) {
+        return compileExpression(expr).evaluate(context);
+    }
+
+    static Object getProperty(Object target, String p) {
+        if (target instanceof Map) {
+            return ((Map<?,?>)target).get(p);
         }
-        return cur;
+        return PropertyAccessors.get(target, p);
     }
 
     public static boolean isTruthy(Object v) {
@@ -0,0 +1,18 @@
+package chtml;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+// Runtime helpers called from classes generated by TemplateCompiler.
+final class CompiledSupport {
+    private CompiledSupport() {}
+
+    static void append(Object value, Appendable out) throws IOException {
+        if (value != null) out.append(value.toString());
+    }
+
+    static Iterator<?> iterator(Object listObj) {
+        Iterable<?> iterable = ForNode.toIterable(listObj);
+        return iterable == null ? null : iterable.iterator();
+    }
+}
@@ -1,5 +1,6 @@
 package chtml;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -12,9 +13,7 @@ public class CompositeNode extends TemplateNode {
     }
 
     @Override
-    public String render(Map<String, Object> context) {
-        StringBuilder sb = new StringBuilder();
-        for (TemplateNode c : children) sb.append(c.render(context));
-        return sb.toString();
+    public void render(Map<String, Object> context, Appendable out) throws IOException {
+        for (TemplateNode c : children) c.render(context, out);
     }
 }
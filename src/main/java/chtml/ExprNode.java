@@ -0,0 +1,26 @@
+package chtml;
+
+import java.io.IOException;
+import java.util.Map;
+
+public class ExprNode extends TemplateNode {
+    private final Expression expression;
+
+    public ExprNode(String expr) {
+        this(ChtmlEngine.compileExpression(expr));
+    }
+
+    public ExprNode(Expression expression) {
+        this.expression = expression;
+    }
+
+    Expression getExpression() {
+        return expression;
+    }
+
+    @Override
+    public void render(Map<String, Object> context, Appendable out) throws IOException {
+        Object val = expression.evaluate(context);
+        if (val != null) out.append(val.toString());
+    }
+}
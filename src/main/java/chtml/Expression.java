@@ -0,0 +1,7 @@
+package chtml;
+
+import java.util.Map;
+
+public interface Expression {
+    Object evaluate(Map<String, Object> context);
+}
@@ -1,21 +1,43 @@
 package chtml;
 
+import java.io.IOException;
 import java.util.Map;
 
 public class ForNode extends CompositeNode {
     private final String loopVar;
-    private final String listExpr;
+    private final Expression listExpr;
 
     public ForNode(String loopVar, String listExpr) {
+        this(loopVar, ChtmlEngine.compileExpression(listExpr));
+    }
+
+    public ForNode(String loopVar, Expression listExpr) {
         this.loopVar = loopVar;
         this.listExpr = listExpr;
     }
 
+    public String getLoopVar() {
+        return loopVar;
+    }
+
+    Expression getListExpr() {
+        return listExpr;
+    }
+
     @Override
-    public String render(Map<String, Object> context) {
-        Object listObj = ChtmlEngine.resolveExpression(listExpr, context);
-        StringBuilder out = new StringBuilder();
-        if (listObj == null) return "";
+    public void render(Map<String, Object> context, Appendable out) throws IOException {
+        Iterable<?> iterable = toIterable(listExpr.evaluate(context));
+        if (iterable == null) return;
+
+        LoopScope scope = new LoopScope(context, loopVar);
+        for (Object item : iterable) {
+            scope.value = item;
+            super.render(scope, out);
+        }
+    }
+
+    static Iterable<?> toIterable(Object listObj) {
+        if (listObj == null) return null;
 
         Iterable<?> iterable = null;
 
@@ -30,15 +52,6 @@ public class ForNode extends CompositeNode {
             for (String p : parts) list.add(p == null ? "" : p.trim());
             iterable = list;
         }
-
-        if (iterable == null) return "";
-
-        for (Object item : iterable) {
-            java.util.HashMap<String,Object> inner = new java.util.HashMap<>(context);
-            inner.put(loopVar, item);
-            out.append(super.render(inner));
-        }
-        return out.toString();
+        return iterable;
     }
 }
-
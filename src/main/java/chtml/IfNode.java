@@ -1,19 +1,24 @@
 package chtml;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 
 public class IfNode extends CompositeNode {
-    private final String conditionExpr;
+    private final Expression condition;
 
     private final List<TemplateNode> elseChildren = new ArrayList<>();
 
     private boolean inElseMode = false;
 
     public IfNode(String conditionExpr) {
-        this.conditionExpr = conditionExpr;
+        this(ChtmlEngine.compileExpression(conditionExpr));
+    }
+
+    public IfNode(Expression condition) {
+        this.condition = condition;
     }
 
     @Override
@@ -29,15 +34,21 @@ public class IfNode extends CompositeNode {
         this.inElseMode = true;
     }
 
+    Expression getCondition() {
+        return condition;
+    }
+
+    List<TemplateNode> getElseChildren() {
+        return elseChildren;
+    }
+
     @Override
-    public String render(Map<String, Object> context) {
-        Object v = ChtmlEngine.resolveExpression(conditionExpr, context);
+    public void render(Map<String, Object> context, Appendable out) throws IOException {
+        Object v = condition.evaluate(context);
         if (ChtmlEngine.isTruthy(v)) {
-            return super.render(context);
+            super.render(context, out);
         } else {
-            StringBuilder sb = new StringBuilder();
-            for (TemplateNode t : elseChildren) sb.append(t.render(context));
-            return sb.toString();
+            for (TemplateNode t : elseChildren) t.render(context, out);
         }
     }
 }
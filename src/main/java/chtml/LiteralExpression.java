@@ -0,0 +1,16 @@
+package chtml;
+
+import java.util.Map;
+
+public final class LiteralExpression implements Expression {
+    private final Object value;
+
+    public LiteralExpression(Object value) {
+        this.value = value;
+    }
+
+    @Override
+    public Object evaluate(Map<String, Object> context) {
+        return value;
+    }
+}
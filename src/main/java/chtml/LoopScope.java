@@ -0,0 +1,35 @@
+package chtml;
+
+import java.util.AbstractMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+// One loop binding layered over the enclosing context; ForNode reuses a single instance for all iterations.
+final class LoopScope extends AbstractMap<String, Object> {
+    final Map<String, Object> parent;
+    final String name;
+    Object value;
+
+    LoopScope(Map<String, Object> parent, String name) {
+        this.parent = parent;
+        this.name = name;
+    }
+
+    @Override
+    public Object get(Object key) {
+        return name.equals(key) ? value : parent.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return name.equals(key) || parent.containsKey(key);
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        Map<String, Object> flat = new LinkedHashMap<>(parent);
+        flat.put(name, value);
+        return flat.entrySet();
+    }
+}
@@ -0,0 +1,33 @@
+package chtml;
+
+import java.util.Map;
+
+// A loop variable whose position in the scope chain was fixed at parse time: skip `hops` scopes, read the binding.
+public final class LoopVariableExpression implements Expression {
+    private final String name;
+    private final int hops;
+    private final String[] path;
+
+    public LoopVariableExpression(String name, int hops, String[] path) {
+        this.name = name;
+        this.hops = hops;
+        this.path = path;
+    }
+
+    @Override
+    public Object evaluate(Map<String, Object> context) {
+        Object cur = lookup(context);
+        for (String p : path) {
+            if (cur == null) return null;
+            cur = ChtmlEngine.getProperty(cur, p);
+        }
+        return cur;
+    }
+
+    private Object lookup(Map<String, Object> context) {
+        Map<String, Object> m = context;
+        for (int i = 0; i < hops && m instanceof LoopScope s; i++) m = s.parent;
+        if (m instanceof LoopScope s && s.name.equals(name)) return s.value;
+        return context.get(name);
+    }
+}
@@ -0,0 +1,65 @@
+package chtml;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+final class PropertyAccessors {
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodHandle MISSING = MethodHandles.constant(Object.class, null);
+
+    private static final ClassValue<Map<String, MethodHandle>> ACCESSORS = new ClassValue<>() {
+        @Override
+        protected Map<String, MethodHandle> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private PropertyAccessors() {}
+
+    static Object get(Object target, String property) {
+        MethodHandle h = ACCESSORS.get(target.getClass()).computeIfAbsent(property, p -> resolve(target.getClass(), p));
+        if (h == MISSING) return null;
+        try {
+            return (Object) h.invokeExact(target);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+
+    // Same lookup order as before: a field declared on the class itself, then a public getX() method.
+    private static MethodHandle resolve(Class<?> type, String property) {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            Field field = type.getDeclaredField(property);
+            field.setAccessible(true);
+            return adapt(lookup.unreflectGetter(field), Modifier.isStatic(field.getModifiers()));
+        } catch (NoSuchFieldException | IllegalAccessException | RuntimeException ignored) {
+        }
+
+        if (property.isEmpty()) return MISSING;
+        try {
+            String getter = "get" + Character.toUpperCase(property.charAt(0)) + property.substring(1);
+            Method m = type.getMethod(getter);
+            try {
+                m.setAccessible(true);
+            } catch (RuntimeException ignored) {
+            }
+            return adapt(lookup.unreflect(m), Modifier.isStatic(m.getModifiers()));
+        } catch (NoSuchMethodException | IllegalAccessException | RuntimeException e) {
+            return MISSING;
+        }
+    }
+
+    private static MethodHandle adapt(MethodHandle h, boolean isStatic) {
+        if (isStatic) h = MethodHandles.dropArguments(h, 0, Object.class);
+        return h.asType(GETTER_TYPE);
+    }
+}
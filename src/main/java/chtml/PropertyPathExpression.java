@@ -0,0 +1,23 @@
+package chtml;
+
+import java.util.Map;
+
+public final class PropertyPathExpression implements Expression {
+    private final String root;
+    private final String[] path;
+
+    public PropertyPathExpression(String root, String[] path) {
+        this.root = root;
+        this.path = path;
+    }
+
+    @Override
+    public Object evaluate(Map<String, Object> context) {
+        Object cur = context.get(root);
+        for (String p : path) {
+            if (cur == null) return null;
+            cur = ChtmlEngine.getProperty(cur, p);
+        }
+        return cur;
+    }
+}
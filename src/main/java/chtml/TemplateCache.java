@@ -0,0 +1,147 @@
+package chtml;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+public final class TemplateCache {
+    public enum Mode { RELOAD, FROZEN, OFF }
+
+    private record Source(String text, Path file, long lastModified) {}
+
+    private record Entry(TemplateNode root, Path file, long lastModified) {}
+
+    // jar templates never change while the process runs, so their version is the start time
+    private static final long BOOT_MILLIS = System.currentTimeMillis() / 1000 * 1000;
+
+    private final Mode mode;
+    private final Function<String, TemplateNode> parser;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder reloads = new LongAdder();
+    private final LongAdder parses = new LongAdder();
+    private final LongAdder parseNanos = new LongAdder();
+
+    public TemplateCache(Mode mode, Function<String, TemplateNode> parser) {
+        this.mode = mode;
+        this.parser = parser;
+    }
+
+    public static Mode parseMode(String value) {
+        if (value == null) return Mode.RELOAD;
+        try {
+            return Mode.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid CHTML_CACHE_MODE '" + value + "', using fallback reload");
+            return Mode.RELOAD;
+        }
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public TemplateNode get(String templatePath) throws IOException {
+        if (mode == Mode.OFF) {
+            misses.increment();
+            return parse(load(templatePath).text());
+        }
+
+        Entry e = entries.get(templatePath);
+        if (e != null && (mode == Mode.FROZEN || isFresh(e))) {
+            hits.increment();
+            return e.root();
+        }
+
+        if (e == null) misses.increment();
+        else reloads.increment();
+
+        Source src = load(templatePath);
+        Entry fresh = new Entry(parse(src.text()), src.file(), src.lastModified());
+        entries.put(templatePath, fresh);
+        return fresh.root();
+    }
+
+    // mtime of the cached parse, or -1 when nothing is cached (mode off, or not loaded yet)
+    public long version(String templatePath) {
+        Entry e = entries.get(templatePath);
+        if (e == null) return -1;
+        return e.file() == null ? BOOT_MILLIS : e.lastModified();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> s = new LinkedHashMap<>();
+        s.put("mode", mode.name().toLowerCase(Locale.ROOT));
+        s.put("templates", entries.size());
+        s.put("hits", hits.sum());
+        s.put("misses", misses.sum());
+        s.put("reloads", reloads.sum());
+        s.put("parses", parses.sum());
+        s.put("parseMs", parseNanos.sum() / 1_000_000.0);
+        return s;
+    }
+
+    // Templates served from inside a jar have no file to check and are treated as frozen.
+    private static boolean isFresh(Entry e) {
+        if (e.file() == null) return true;
+        try {
+            return Files.getLastModifiedTime(e.file()).toMillis() == e.lastModified();
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    private TemplateNode parse(String text) {
+        long start = System.nanoTime();
+        TemplateNode root = parser.apply(text);
+        parseNanos.add(System.nanoTime() - start);
+        parses.increment();
+        return root;
+    }
+
+    private static Source load(String templatePath) throws IOException {
+        String normalized = templatePath.startsWith("/") ? templatePath.substring(1) : templatePath;
+
+        Path p = Path.of(normalized);
+        if (Files.isRegularFile(p)) return fromFile(p);
+
+        Path guess = Path.of("templates").resolve(normalized);
+        if (Files.isRegularFile(guess)) return fromFile(guess);
+
+        String resPath = "templates/" + normalized;
+        URL url = ChtmlEngine.class.getClassLoader().getResource(resPath);
+        if (url != null) {
+            if ("file".equals(url.getProtocol())) {
+                try {
+                    return fromFile(Path.of(url.toURI()));
+                } catch (URISyntaxException | IllegalArgumentException ignored) {}
+            }
+            try (var is = url.openStream()) {
+                return new Source(new String(is.readAllBytes(), StandardCharsets.UTF_8), null, 0L);
+            }
+        }
+
+        throw new IOException("Template not found: " + templatePath);
+    }
+
+    private static Source fromFile(Path file) throws IOException {
+        // mtime first: a write racing with the read shows up as a stale entry on the next check
+        long mtime = Files.getLastModifiedTime(file).toMillis();
+        return new Source(Files.readString(file), file, mtime);
+    }
+}
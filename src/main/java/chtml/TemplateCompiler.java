@@ -0,0 +1,208 @@
+package chtml;
+
+import java.lang.classfile.ClassFile;
+import java.lang.classfile.ClassHierarchyResolver;
+import java.lang.classfile.CodeBuilder;
+import java.lang.classfile.Label;
+import java.lang.classfile.TypeKind;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.MethodTypeDesc;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.lang.constant.ConstantDescs.CD_Object;
+import static java.lang.constant.ConstantDescs.CD_String;
+import static java.lang.constant.ConstantDescs.CD_boolean;
+import static java.lang.constant.ConstantDescs.CD_void;
+import static java.lang.constant.ConstantDescs.INIT_NAME;
+import static java.lang.constant.ConstantDescs.MTD_void;
+
+/*
+ * Turns a parsed template into a hidden class extending TemplateNode whose render method is straight-line
+ * bytecode: text is appended from string constants, if/for become real branches and loops, and expressions
+ * live in final fields so the JIT can treat them as constants. Nodes it does not know are kept as fields and
+ * rendered through the interpreter.
+ */
+final class TemplateCompiler {
+    // keeps each string constant well under the 65535-byte constant pool limit
+    private static final int MAX_TEXT_CHARS = 16 * 1024;
+
+    private static final ClassDesc CD_THIS = ClassDesc.of("chtml.CompiledTemplate");
+    private static final ClassDesc CD_TEMPLATE_NODE = ClassDesc.of(TemplateNode.class.getName());
+    private static final ClassDesc CD_EXPRESSION = ClassDesc.of(Expression.class.getName());
+    private static final ClassDesc CD_LOOP_SCOPE = ClassDesc.of(LoopScope.class.getName());
+    private static final ClassDesc CD_SUPPORT = ClassDesc.of(CompiledSupport.class.getName());
+    private static final ClassDesc CD_ENGINE = ClassDesc.of(ChtmlEngine.class.getName());
+    private static final ClassDesc CD_MAP = ClassDesc.of("java.util.Map");
+    private static final ClassDesc CD_ITERATOR = ClassDesc.of("java.util.Iterator");
+    private static final ClassDesc CD_APPENDABLE = ClassDesc.of("java.lang.Appendable");
+    private static final ClassDesc CD_CHAR_SEQUENCE = ClassDesc.of("java.lang.CharSequence");
+
+    private static final MethodTypeDesc MTD_INIT = MethodTypeDesc.of(CD_void, CD_Object.arrayType());
+    private static final MethodTypeDesc MTD_RENDER = MethodTypeDesc.of(CD_void, CD_MAP, CD_APPENDABLE);
+    private static final MethodTypeDesc MTD_APPEND_CS = MethodTypeDesc.of(CD_APPENDABLE, CD_CHAR_SEQUENCE);
+    private static final MethodTypeDesc MTD_EVALUATE = MethodTypeDesc.of(CD_Object, CD_MAP);
+    private static final MethodTypeDesc MTD_APPEND_VALUE = MethodTypeDesc.of(CD_void, CD_Object, CD_APPENDABLE);
+    private static final MethodTypeDesc MTD_IS_TRUTHY = MethodTypeDesc.of(CD_boolean, CD_Object);
+    private static final MethodTypeDesc MTD_ITERATOR = MethodTypeDesc.of(CD_ITERATOR, CD_Object);
+    private static final MethodTypeDesc MTD_HAS_NEXT = MethodTypeDesc.of(CD_boolean);
+    private static final MethodTypeDesc MTD_NEXT = MethodTypeDesc.of(CD_Object);
+    private static final MethodTypeDesc MTD_SCOPE_INIT = MethodTypeDesc.of(CD_void, CD_MAP, CD_String);
+
+    private static final ClassFile CLASS_FILE = ClassFile.of(ClassFile.ClassHierarchyResolverOption.of(
+            ClassHierarchyResolver.defaultResolver()
+                    .orElse(ClassHierarchyResolver.ofClassLoading(TemplateCompiler.class.getClassLoader()))));
+
+    private static final LongAdder compiled = new LongAdder();
+    private static final LongAdder fallbacks = new LongAdder();
+
+    private final List<Object> constants = new ArrayList<>();
+    private final List<ClassDesc> constantTypes = new ArrayList<>();
+
+    private TemplateCompiler() {}
+
+    // Returns the compiled template, or the interpreted tree if code generation fails (e.g. method too large).
+    static TemplateNode compile(TemplateNode root) {
+        try {
+            TemplateNode node = new TemplateCompiler().generate(root);
+            compiled.increment();
+            return node;
+        } catch (Throwable t) {
+            fallbacks.increment();
+            System.err.println("chtml compile failed, using interpreter: " + t);
+            return root;
+        }
+    }
+
+    static long getCompiled() {
+        return compiled.sum();
+    }
+
+    static long getFallbacks() {
+        return fallbacks.sum();
+    }
+
+    private TemplateNode generate(TemplateNode root) throws Throwable {
+        byte[] bytes = CLASS_FILE.build(CD_THIS, cb -> {
+            cb.withFlags(ClassFile.ACC_PUBLIC | ClassFile.ACC_FINAL)
+                    .withSuperclass(CD_TEMPLATE_NODE);
+
+            // method bodies are built eagerly, so every constant is registered once this returns
+            cb.withMethodBody("render", MTD_RENDER, ClassFile.ACC_PUBLIC, code -> {
+                emit(code, root, 1);
+                code.return_();
+            });
+
+            for (int i = 0; i < constantTypes.size(); i++) {
+                cb.withField(field(i), constantTypes.get(i), ClassFile.ACC_PRIVATE | ClassFile.ACC_FINAL);
+            }
+            cb.withMethodBody(INIT_NAME, MTD_INIT, ClassFile.ACC_PUBLIC, code -> {
+                code.aload(0).invokespecial(CD_TEMPLATE_NODE, INIT_NAME, MTD_void);
+                for (int i = 0; i < constantTypes.size(); i++) {
+                    code.aload(0)
+                            .aload(1)
+                            .loadConstant(i)
+                            .aaload()
+                            .checkcast(constantTypes.get(i))
+                            .putfield(CD_THIS, field(i), constantTypes.get(i));
+                }
+                code.return_();
+            });
+        });
+
+        MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+        Object instance = lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class, Object[].class))
+                .invoke(constants.toArray());
+        return (TemplateNode) instance;
+    }
+
+    // ctxSlot holds the Map the current node renders against; slot 2 is always the Appendable.
+    private void emit(CodeBuilder code, TemplateNode node, int ctxSlot) {
+        switch (node) {
+            case TextNode t -> emitText(code, t.getText());
+            case ExprNode e -> {
+                loadConstant(code, e.getExpression(), CD_EXPRESSION);
+                code.aload(ctxSlot)
+                        .invokeinterface(CD_EXPRESSION, "evaluate", MTD_EVALUATE)
+                        .aload(2)
+                        .invokestatic(CD_SUPPORT, "append", MTD_APPEND_VALUE);
+            }
+            case IfNode i -> {
+                Label otherwise = code.newLabel();
+                Label end = code.newLabel();
+                loadConstant(code, i.getCondition(), CD_EXPRESSION);
+                code.aload(ctxSlot)
+                        .invokeinterface(CD_EXPRESSION, "evaluate", MTD_EVALUATE)
+                        .invokestatic(CD_ENGINE, "isTruthy", MTD_IS_TRUTHY)
+                        .ifeq(otherwise);
+                for (TemplateNode c : i.children) emit(code, c, ctxSlot);
+                code.goto_(end).labelBinding(otherwise);
+                for (TemplateNode c : i.getElseChildren()) emit(code, c, ctxSlot);
+                code.labelBinding(end);
+            }
+            case ForNode f -> {
+                int itSlot = code.allocateLocal(TypeKind.REFERENCE);
+                int scopeSlot = code.allocateLocal(TypeKind.REFERENCE);
+                Label loop = code.newLabel();
+                Label end = code.newLabel();
+
+                loadConstant(code, f.getListExpr(), CD_EXPRESSION);
+                code.aload(ctxSlot)
+                        .invokeinterface(CD_EXPRESSION, "evaluate", MTD_EVALUATE)
+                        .invokestatic(CD_SUPPORT, "iterator", MTD_ITERATOR)
+                        .astore(itSlot)
+                        .aload(itSlot)
+                        .ifnull(end)
+                        .new_(CD_LOOP_SCOPE)
+                        .dup()
+                        .aload(ctxSlot)
+                        .loadConstant(f.getLoopVar())
+                        .invokespecial(CD_LOOP_SCOPE, INIT_NAME, MTD_SCOPE_INIT)
+                        .astore(scopeSlot)
+                        .labelBinding(loop)
+                        .aload(itSlot)
+                        .invokeinterface(CD_ITERATOR, "hasNext", MTD_HAS_NEXT)
+                        .ifeq(end)
+                        .aload(scopeSlot)
+                        .aload(itSlot)
+                        .invokeinterface(CD_ITERATOR, "next", MTD_NEXT)
+                        .putfield(CD_LOOP_SCOPE, "value", CD_Object);
+                for (TemplateNode c : f.children) emit(code, c, scopeSlot);
+                code.goto_(loop).labelBinding(end);
+            }
+            case CompositeNode c when c.getClass() == CompositeNode.class -> {
+                for (TemplateNode child : c.children) emit(code, child, ctxSlot);
+            }
+            default -> {
+                loadConstant(code, node, CD_TEMPLATE_NODE);
+                code.aload(ctxSlot)
+                        .aload(2)
+                        .invokevirtual(CD_TEMPLATE_NODE, "render", MTD_RENDER);
+            }
+        }
+    }
+
+    private void emitText(CodeBuilder code, String text) {
+        for (int from = 0; from < text.length(); from += MAX_TEXT_CHARS) {
+            String part = text.substring(from, Math.min(text.length(), from + MAX_TEXT_CHARS));
+            code.aload(2)
+                    .loadConstant(part)
+                    .invokeinterface(CD_APPENDABLE, "append", MTD_APPEND_CS)
+                    .pop();
+        }
+    }
+
+    private void loadConstant(CodeBuilder code, Object value, ClassDesc type) {
+        int idx = constants.size();
+        constants.add(value);
+        constantTypes.add(type);
+        code.aload(0).getfield(CD_THIS, field(idx), type);
+    }
+
+    private static String field(int i) {
+        return "k" + i;
+    }
+}
@@ -1,7 +1,19 @@
 package chtml;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Map;
 
 public abstract class TemplateNode {
-    public abstract String render(Map<String, Object> context);
+    public abstract void render(Map<String, Object> context, Appendable out) throws IOException;
+
+    public String render(Map<String, Object> context) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            render(context, sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
 }
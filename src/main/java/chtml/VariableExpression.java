@@ -0,0 +1,20 @@
+package chtml;
+
+import java.util.Map;
+
+public final class VariableExpression implements Expression {
+    private final String name;
+
+    public VariableExpression(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object evaluate(Map<String, Object> context) {
+        return context.get(name);
+    }
+}
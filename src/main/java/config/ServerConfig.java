@@ -0,0 +1,116 @@
+package config;
+
+import io.github.cdimascio.dotenv.Dotenv;
+
+import java.util.concurrent.ThreadFactory;
+
+public final class ServerConfig {
+    private static final int FALLBACK_KEEP_ALIVE_TIMEOUT_MS = 10_000;
+    private static final int FALLBACK_MAX_REQUESTS = 100;
+    private static final int FALLBACK_WORKER_THREADS = 10;
+    private static final String FALLBACK_ENGINE = "blocking";
+    private static final String FALLBACK_EXECUTION_MODE = "platform";
+
+    private static final String ENV_KEEP_ALIVE_MS = "KEEP_ALIVE_TIMEOUT_MS";
+    private static final String ENV_MAX_REQUESTS = "MAX_REQUESTS_PER_CONNECTION";
+    private static final String ENV_WORKER_THREADS = "WORKER_THREADS";
+    private static final String ENV_ENGINE = "SERVER_ENGINE";
+    private static final String ENV_EXECUTION_MODE = "EXECUTION_MODE";
+
+    public static final int KEEP_ALIVE_TIMEOUT_MS;
+    public static final int MAX_REQUESTS_PER_CONNECTION;
+    public static final int WORKER_THREADS;
+    public static final String SERVER_ENGINE;
+    public static final String EXECUTION_MODE;
+    public static final boolean PIPELINE_PARALLEL;
+    public static final long MAX_REQUEST_BODY_BYTES;
+    public static final long REQUEST_BODY_SPILL_BYTES;
+    public static final int HEADER_READ_TIMEOUT_MS;
+    public static final int BODY_READ_TIMEOUT_MS;
+    public static final int REQUEST_TIMEOUT_MS;
+
+    private static final Dotenv dotenv;
+
+    static {
+        Dotenv loaded = null;
+        try {
+            loaded = Dotenv.configure().ignoreIfMissing().load();
+        } catch (Throwable t) {
+            System.err.println("Failed to load .env for ServerConfig: " + t.getMessage() + " — using fallbacks");
+        }
+        dotenv = loaded;
+
+        KEEP_ALIVE_TIMEOUT_MS = getPositiveInt(ENV_KEEP_ALIVE_MS, FALLBACK_KEEP_ALIVE_TIMEOUT_MS);
+        MAX_REQUESTS_PER_CONNECTION = getPositiveInt(ENV_MAX_REQUESTS, FALLBACK_MAX_REQUESTS);
+        WORKER_THREADS = getPositiveInt(ENV_WORKER_THREADS, FALLBACK_WORKER_THREADS);
+
+        String engine = getString(ENV_ENGINE, FALLBACK_ENGINE).toLowerCase();
+        if (!engine.equals("blocking") && !engine.equals("nio")) {
+            System.err.println("Invalid " + ENV_ENGINE + " '" + engine + "', using fallback " + FALLBACK_ENGINE);
+            engine = FALLBACK_ENGINE;
+        }
+        SERVER_ENGINE = engine;
+
+        String mode = getString(ENV_EXECUTION_MODE, FALLBACK_EXECUTION_MODE).toLowerCase();
+        if (!mode.equals("platform") && !mode.equals("virtual")) {
+            System.err.println("Invalid " + ENV_EXECUTION_MODE + " '" + mode + "', using fallback " + FALLBACK_EXECUTION_MODE);
+            mode = FALLBACK_EXECUTION_MODE;
+        }
+        EXECUTION_MODE = mode;
+
+        PIPELINE_PARALLEL = getBoolean("PIPELINE_PARALLEL", false);
+        MAX_REQUEST_BODY_BYTES = getPositiveLong("MAX_REQUEST_BODY_BYTES", 10L * 1024 * 1024);
+        REQUEST_BODY_SPILL_BYTES = getPositiveLong("REQUEST_BODY_SPILL_BYTES", 1024L * 1024);
+        HEADER_READ_TIMEOUT_MS = getPositiveInt("HEADER_READ_TIMEOUT_MS", 10_000);
+        BODY_READ_TIMEOUT_MS = getPositiveInt("BODY_READ_TIMEOUT_MS", 30_000);
+        REQUEST_TIMEOUT_MS = getPositiveInt("REQUEST_TIMEOUT_MS", 60_000);
+    }
+
+    private ServerConfig() {}
+
+    public static boolean isNioEngine() {
+        return "nio".equals(SERVER_ENGINE);
+    }
+
+    public static boolean isVirtualThreads() {
+        return "virtual".equals(EXECUTION_MODE);
+    }
+
+    public static ThreadFactory threadFactory(String name, boolean daemon) {
+        if (isVirtualThreads()) return Thread.ofVirtual().name(name).factory();
+        return Thread.ofPlatform().name(name).daemon(daemon).factory();
+    }
+
+    public static String getString(String name, String fallback) {
+        String v = dotenv == null ? null : dotenv.get(name);
+        if (v == null || v.isBlank()) return fallback;
+        return v.trim();
+    }
+
+    public static int getPositiveInt(String name, int fallback) {
+        long v = getPositiveLong(name, fallback);
+        return v > Integer.MAX_VALUE ? fallback : (int) v;
+    }
+
+    public static long getPositiveLong(String name, long fallback) {
+        String v = dotenv == null ? null : dotenv.get(name);
+        if (v == null || v.isBlank()) {
+            System.out.println(name + " not set, using default " + fallback);
+            return fallback;
+        }
+        try {
+            long parsed = Long.parseLong(v.trim());
+            if (parsed > 0) return parsed;
+            System.err.println("Invalid " + name + ", using fallback " + fallback);
+        } catch (NumberFormatException nfe) {
+            System.err.println("Failed to parse " + name + ": " + nfe.getMessage() + " — using fallback " + fallback);
+        }
+        return fallback;
+    }
+
+    public static boolean getBoolean(String name, boolean fallback) {
+        String v = getString(name, null);
+        if (v == null) return fallback;
+        return v.equalsIgnoreCase("true") || v.equals("1") || v.equalsIgnoreCase("yes");
+    }
+}
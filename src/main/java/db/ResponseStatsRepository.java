@@ -6,8 +6,12 @@ import com.mongodb.client.MongoDatabase;
 import org.bson.Document;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 
 public class ResponseStatsRepository {
+    public record Row(String method, String path, int status, double durationMs, String timestamp) {}
+
     private final MongoCollection<Document> collection;
 
     public ResponseStatsRepository(MongoClient client, String dbName) {
@@ -17,22 +21,35 @@ public class ResponseStatsRepository {
 
     public void saveResponseStat(String method, String path, int status, double durationMs, String timestamp) {
         try {
-            if (method == null) method = "";
-            if (path == null) path = "";
-            String ts = timestamp == null ? Instant.now().toString() : timestamp;
-            Document doc = new Document()
-                    .append("method", method)
-                    .append("path", path)
-                    .append("status", status)
-                    .append("durationMs", durationMs)
-                    .append("timestamp", ts)
-                    .append("createdAt", Instant.now().toString());
-            collection.insertOne(doc);
+            collection.insertOne(toDocument(new Row(method, path, status, durationMs, timestamp), Instant.now().toString()));
         } catch (Exception e) {
             System.err.println("Failed to save response stat: " + e.getMessage());
         }
     }
 
+    // One round trip for the whole batch.
+    public void saveResponseStats(List<Row> rows) {
+        if (rows.isEmpty()) return;
+        try {
+            String createdAt = Instant.now().toString();
+            List<Document> docs = new ArrayList<>(rows.size());
+            for (Row r : rows) docs.add(toDocument(r, createdAt));
+            collection.insertMany(docs);
+        } catch (Exception e) {
+            System.err.println("Failed to save " + rows.size() + " response stats: " + e.getMessage());
+        }
+    }
+
+    private static Document toDocument(Row r, String createdAt) {
+        return new Document()
+                .append("method", r.method() == null ? "" : r.method())
+                .append("path", r.path() == null ? "" : r.path())
+                .append("status", r.status())
+                .append("durationMs", r.durationMs())
+                .append("timestamp", r.timestamp() == null ? createdAt : r.timestamp())
+                .append("createdAt", createdAt);
+    }
+
     public void clearAll() {
         try {
             collection.deleteMany(new Document());
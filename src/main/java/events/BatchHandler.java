@@ -0,0 +1,9 @@
+package events;
+
+import java.util.List;
+
+// Receives events in the order they were published, as many at a time as have queued up. The list is reused.
+@FunctionalInterface
+public interface BatchHandler<E extends Event> {
+    void onBatch(List<E> events);
+}
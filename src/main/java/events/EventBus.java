@@ -1,44 +1,41 @@
 package events;
 
+import config.ServerConfig;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.*;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 
+/*
+ * Every subscription gets its own bounded ring buffer and thread, so a slow subscriber (a Mongo insert, say)
+ * only delays itself, and its overflow policy decides what happens once it falls a full ring behind.
+ * Publishing copies the event reference into each subscriber's ring and allocates nothing.
+ */
 public class EventBus {
     private static final EventBus instance = new EventBus();
+    private static final Subscription<?>[] NO_SUBSCRIPTIONS = new Subscription<?>[0];
 
-    private final Map<Class<?>, CopyOnWriteArrayList<Consumer<?>>> subs = new ConcurrentHashMap<>();
-    private final ExecutorService exec = Executors.newSingleThreadExecutor(r -> {
-        Thread t = new Thread(r, "EventBus");
-        t.setDaemon(true);
-        return t;
-    });
+    private final int capacity = ServerConfig.getPositiveInt("EVENT_BUS_CAPACITY", 8192);
+    private final WaitStrategy waitStrategy =
+            WaitStrategy.parse(ServerConfig.getString("EVENT_BUS_WAIT_STRATEGY", null), WaitStrategy.BLOCKING);
+    private final Map<Class<?>, Subscription<?>[]> subs = new ConcurrentHashMap<>();
+    private int subscriptions;
 
     private EventBus() {}
 
     public static EventBus getInstance() { return instance; }
 
     public <E extends Event> void subscribe(Class<E> cls, Consumer<E> handler) {
-        subs.computeIfAbsent(cls, k -> new CopyOnWriteArrayList<>()).add(handler);
-    }
-
-    public <E extends Event> void unsubscribe(Class<E> cls, Consumer<E> handler) {
-        var list = subs.get(cls);
-        if (list != null) list.remove(handler);
+        subscribe(cls, handler, null);
     }
 
-    public void publish(Event e) {
-        if (e == null) return;
-        var list = subs.get(e.getClass());
-        if (list == null || list.isEmpty()) return;
-
-        exec.submit(() -> {
-            for (var h : list) {
+    public <E extends Event> void subscribe(Class<E> cls, Consumer<E> handler, SubscriptionOptions options) {
+        add(cls, handler, options, events -> {
+            for (E e : events) {
                 try {
-                    @SuppressWarnings("unchecked")
-                    Consumer<Event> c = (Consumer<Event>) h;
-                    c.accept(e);
+                    handler.accept(e);
                 } catch (Throwable t) {
                     System.err.println("Event handler error: " + t.getMessage());
                 }
@@ -46,7 +43,82 @@ public class EventBus {
         });
     }
 
-    public void shutdown() {
-        exec.shutdown();
+    public <E extends Event> void subscribeBatch(Class<E> cls, BatchHandler<E> handler) {
+        subscribeBatch(cls, handler, null);
+    }
+
+    public <E extends Event> void subscribeBatch(Class<E> cls, BatchHandler<E> handler, SubscriptionOptions options) {
+        add(cls, handler, options, handler);
+    }
+
+    // handler is the Consumer or BatchHandler that was subscribed
+    public synchronized <E extends Event> void unsubscribe(Class<E> cls, Object handler) {
+        Subscription<?>[] list = subs.getOrDefault(cls, NO_SUBSCRIPTIONS);
+        for (int i = 0; i < list.length; i++) {
+            if (list[i].handler != handler) continue;
+            Subscription<?>[] next = new Subscription<?>[list.length - 1];
+            System.arraycopy(list, 0, next, 0, i);
+            System.arraycopy(list, i + 1, next, i, list.length - i - 1);
+            if (next.length == 0) subs.remove(cls);
+            else subs.put(cls, next);
+            list[i].stop();
+            return;
+        }
+    }
+
+    public void publish(Event e) {
+        if (e == null) return;
+        Subscription<?>[] list = subs.get(e.getClass());
+        if (list == null) return;
+        for (Subscription<?> s : list) s.offer(e);
+    }
+
+    // Per subscription: overflow policy, capacity, lag (queued events), delivered, dropped and blocked publishes.
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> s = new LinkedHashMap<>();
+        for (Subscription<?>[] list : subs.values()) {
+            for (Subscription<?> sub : list) s.put(sub.name, sub.snapshot());
+        }
+        return s;
+    }
+
+    public synchronized void shutdown() {
+        for (Subscription<?>[] list : subs.values()) {
+            for (Subscription<?> s : list) s.stop();
+        }
+        subs.clear();
+    }
+
+    private synchronized <E extends Event> void add(Class<E> cls, Object handler, SubscriptionOptions options,
+                                                    BatchHandler<E> target) {
+        if (options == null) {
+            options = SubscriptionOptions.of(cls.getSimpleName() + "-" + (subscriptions + 1), OverflowPolicy.DROP_NEWEST);
+        }
+        subscriptions++;
+
+        String prefix = "EVENT_BUS_" + options.name().toUpperCase().replaceAll("[^A-Z0-9]", "_") + "_";
+        int cap = override(prefix + "CAPACITY", options.capacity() == 0 ? capacity : options.capacity());
+        OverflowPolicy overflow = OverflowPolicy.parse(ServerConfig.getString(prefix + "OVERFLOW", null), options.overflow());
+        int sampleEvery = override(prefix + "SAMPLE_EVERY", options.sampleEvery());
+
+        Subscription<E> s = new Subscription<>(handler, target, options.name(), cap, overflow, sampleEvery,
+                waitStrategy, ServerConfig.threadFactory("EventBus-" + options.name(), true));
+        Subscription<?>[] list = subs.getOrDefault(cls, NO_SUBSCRIPTIONS);
+        Subscription<?>[] next = Arrays.copyOf(list, list.length + 1);
+        next[list.length] = s;
+        s.start();
+        subs.put(cls, next);
+    }
+
+    private static int override(String name, int fallback) {
+        String v = ServerConfig.getString(name, null);
+        if (v == null) return fallback;
+        try {
+            int n = Integer.parseInt(v);
+            if (n > 0) return n;
+        } catch (NumberFormatException ignored) {
+        }
+        System.err.println("Invalid " + name + " '" + v + "', using " + fallback);
+        return fallback;
     }
 }
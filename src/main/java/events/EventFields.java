@@ -0,0 +1,20 @@
+package events;
+
+final class EventFields {
+    private EventFields() {}
+
+    // Events outlive the request, so they hold one shared string per method rather than the parsed one.
+    static String method(String m) {
+        if (m == null) return "OTHER";
+        return switch (m) {
+            case "GET" -> "GET";
+            case "HEAD" -> "HEAD";
+            case "POST" -> "POST";
+            case "PUT" -> "PUT";
+            case "DELETE" -> "DELETE";
+            case "PATCH" -> "PATCH";
+            case "OPTIONS" -> "OPTIONS";
+            default -> "OTHER";
+        };
+    }
+}
@@ -0,0 +1,23 @@
+package events;
+
+// What a publisher does when a subscriber's ring is full.
+public enum OverflowPolicy {
+    // Wait for the subscriber to make room. Nothing is lost, but a stuck subscriber stalls the publishing thread.
+    BLOCK,
+    // Discard the oldest queued event to make room for the new one.
+    DROP_OLDEST,
+    // Discard the new event.
+    DROP_NEWEST,
+    // Once the ring is half full keep only every Nth event, and drop the new one when it is full.
+    SAMPLE;
+
+    public static OverflowPolicy parse(String name, OverflowPolicy fallback) {
+        if (name == null || name.isBlank()) return fallback;
+        try {
+            return valueOf(name.trim().toUpperCase().replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown overflow policy '" + name + "', using " + fallback.name().toLowerCase());
+            return fallback;
+        }
+    }
+}
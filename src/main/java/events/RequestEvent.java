@@ -1,14 +1,16 @@
 package events;
 
-import model.HttpRequest;
-import java.time.Instant;
+// Only primitives and shared strings, so a queued event keeps nothing of the request alive.
+public final class RequestEvent implements Event {
+    public final String method;
+    public final String route;
+    public final long bodyBytes;
+    public final long timeMillis;
 
-public class RequestEvent implements Event {
-    public final HttpRequest request;
-    public final Instant ts;
-
-    public RequestEvent(HttpRequest req) {
-        this.request = req;
-        this.ts = Instant.now();
+    public RequestEvent(String method, String route, long bodyBytes, long timeMillis) {
+        this.method = EventFields.method(method);
+        this.route = route;
+        this.bodyBytes = bodyBytes;
+        this.timeMillis = timeMillis;
     }
 }
@@ -1,24 +1,27 @@
 package events;
 
-import model.HttpRequest;
-import model.HttpResponse;
-import java.time.Instant;
-
-public class ResponseEvent implements Event {
-    public final HttpRequest request;
-    public final HttpResponse response;
+// Only primitives and shared strings, so a queued event keeps neither the request nor the response body alive.
+public final class ResponseEvent implements Event {
+    public final String method;
+    public final String route;
+    public final int status;
+    public final long requestBytes;
+    // -1 for a streamed body of unknown length
+    public final long responseBytes;
     public final long durationNanos;
-    public final Instant ts;
+    public final long timeMillis;
 
-    public ResponseEvent(HttpRequest request, HttpResponse response, long durationNanos) {
-        this.request = request;
-        this.response = response;
+    public ResponseEvent(String method, String route, int status, long requestBytes, long responseBytes, long durationNanos) {
+        this.method = EventFields.method(method);
+        this.route = route;
+        this.status = status;
+        this.requestBytes = requestBytes;
+        this.responseBytes = responseBytes;
         this.durationNanos = durationNanos;
-        this.ts = Instant.now();
+        this.timeMillis = System.currentTimeMillis();
     }
 
     public double durationMs() {
         return durationNanos / 1_000_000.0;
     }
 }
-
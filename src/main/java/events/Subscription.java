@@ -0,0 +1,178 @@
+package events;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * One subscriber's preallocated ring. Publishers claim a sequence with a CAS, store the event in its slot and
+ * then stamp the slot with that sequence. The subscriber's thread walks stamped slots in order from the head
+ * and delivers what it took as one batch. When the ring is full the publisher applies the overflow policy;
+ * DROP_OLDEST publishers move the head themselves, so under that policy the subscriber claims a batch with a
+ * CAS on the head and leaves slots for publishers to overwrite instead of clearing them.
+ */
+final class Subscription<E extends Event> {
+    private static final int MAX_BATCH = 256;
+    private static final long BLOCK_PARK_NANOS = 50_000L;
+
+    final Object handler;
+    final String name;
+    private final BatchHandler<E> target;
+    private final WaitStrategy wait;
+    private final OverflowPolicy overflow;
+    private final int sampleEvery;
+    private final boolean clearSlots;
+    private final Object[] slots;
+    private final AtomicLongArray stamps;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong sampled = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder blocked = new LongAdder();
+    private final Thread thread;
+
+    private volatile long delivered;
+    private volatile boolean running = true;
+    volatile boolean sleeping;
+
+    Subscription(Object handler, BatchHandler<E> target, String name, int capacity, OverflowPolicy overflow,
+                 int sampleEvery, WaitStrategy wait, ThreadFactory threads) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.handler = handler;
+        this.target = target;
+        this.name = name;
+        this.wait = wait;
+        this.overflow = overflow;
+        this.sampleEvery = sampleEvery;
+        this.clearSlots = overflow != OverflowPolicy.DROP_OLDEST;
+        this.slots = new Object[size];
+        this.stamps = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) stamps.set(i, -1);
+        this.thread = threads.newThread(this::run);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    // Delivers whatever is already queued, then lets the thread finish.
+    void stop() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+
+    boolean offer(Event e) {
+        boolean waited = false;
+        long seq;
+        while (true) {
+            seq = claimed.get();
+            long h = head.get();
+            long used = seq - h;
+            if (used >= slots.length) {
+                if (!makeRoom(h, waited)) return false;
+                waited = true;
+                continue;
+            }
+            if (overflow == OverflowPolicy.SAMPLE && used >= slots.length / 2
+                    && sampled.getAndIncrement() % sampleEvery != 0) {
+                dropped.increment();
+                return false;
+            }
+            if (claimed.compareAndSet(seq, seq + 1)) break;
+        }
+
+        int i = (int) seq & mask;
+        slots[i] = e;
+        stamps.set(i, seq);
+        if (sleeping) LockSupport.unpark(thread);
+        return true;
+    }
+
+    Map<String, Object> snapshot() {
+        Map<String, Object> s = new LinkedHashMap<>();
+        s.put("overflow", overflow.name().toLowerCase());
+        s.put("capacity", slots.length);
+        s.put("lag", Math.max(0, claimed.get() - head.get()));
+        s.put("delivered", delivered);
+        s.put("dropped", dropped.sum());
+        s.put("blocked", blocked.sum());
+        return s;
+    }
+
+    boolean hasAvailable() {
+        long h = head.get();
+        return stamps.get((int) h & mask) == h;
+    }
+
+    // Returns false when the new event is to be dropped, true to try claiming again.
+    private boolean makeRoom(long h, boolean waited) {
+        switch (overflow) {
+            case BLOCK -> {
+                if (!running) {
+                    dropped.increment();
+                    return false;
+                }
+                if (!waited) blocked.increment();
+                if (sleeping) LockSupport.unpark(thread);
+                LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+                return true;
+            }
+            case DROP_OLDEST -> {
+                // only a published slot may be given up, or two publishers could end up writing the same one
+                if (stamps.get((int) h & mask) == h && head.compareAndSet(h, h + 1)) dropped.increment();
+                else Thread.onSpinWait();
+                return true;
+            }
+            default -> {
+                dropped.increment();
+                return false;
+            }
+        }
+    }
+
+    private void run() {
+        List<E> batch = new ArrayList<>(MAX_BATCH);
+        int tries = 0;
+        while (running || hasAvailable()) {
+            if (drain(batch) == 0) {
+                tries = wait.idle(tries, this);
+                continue;
+            }
+            tries = 0;
+            try {
+                target.onBatch(batch);
+            } catch (Throwable t) {
+                System.err.println("Event handler error in " + name + ": " + t.getMessage());
+            }
+            delivered += batch.size();
+            batch.clear();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private int drain(List<E> batch) {
+        while (true) {
+            long h = head.get();
+            int n = 0;
+            while (n < MAX_BATCH) {
+                long seq = h + n;
+                int i = (int) seq & mask;
+                if (stamps.get(i) != seq) break;
+                batch.add((E) slots[i]);
+                if (clearSlots) slots[i] = null;
+                n++;
+            }
+            if (n == 0 || head.compareAndSet(h, h + n)) return n;
+            // publishers dropped some of these meanwhile; read again from the new head
+            batch.clear();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package events;
+
+/*
+ * Queue settings for one subscription. capacity 0 means EVENT_BUS_CAPACITY. Each setting can be overridden
+ * from the environment by name, e.g. EVENT_BUS_RESPONSE_STATS_OVERFLOW=block for "response-stats".
+ */
+public record SubscriptionOptions(String name, int capacity, OverflowPolicy overflow, int sampleEvery) {
+    private static final int DEFAULT_SAMPLE_EVERY = 10;
+
+    public SubscriptionOptions {
+        if (name == null || name.isBlank()) throw new IllegalArgumentException("Subscription name is required");
+        if (capacity < 0) throw new IllegalArgumentException("Negative capacity for " + name);
+        if (overflow == null) overflow = OverflowPolicy.DROP_NEWEST;
+        if (sampleEvery < 1) throw new IllegalArgumentException("sampleEvery must be at least 1 for " + name);
+    }
+
+    public static SubscriptionOptions of(String name, OverflowPolicy overflow) {
+        return new SubscriptionOptions(name, 0, overflow, DEFAULT_SAMPLE_EVERY);
+    }
+}
@@ -0,0 +1,57 @@
+package events;
+
+import java.util.concurrent.locks.LockSupport;
+
+// How an idle subscriber thread waits for its next event.
+public enum WaitStrategy {
+    // Parks until a publisher wakes it. Costs no CPU while idle; a publish that finds it parked pays for the wake-up.
+    BLOCKING,
+    // Spins, yields, then sleeps in 1ms steps. Publishers never wake it; delivery may lag by up to a millisecond.
+    SLEEPING,
+    // Spins, then yields. Lowest latency that still lets other threads run, but keeps a core busy.
+    YIELDING,
+    BUSY_SPIN;
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 200;
+    private static final long SLEEP_NANOS = 1_000_000L;
+    private static final long MAX_PARK_NANOS = 100_000_000L;
+
+    public static WaitStrategy parse(String name, WaitStrategy fallback) {
+        if (name == null || name.isBlank()) return fallback;
+        try {
+            return valueOf(name.trim().toUpperCase().replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown wait strategy '" + name + "', using " + fallback.name().toLowerCase());
+            return fallback;
+        }
+    }
+
+    // Called by the consumer with the number of empty polls so far; returns the next count.
+    int idle(int tries, Subscription<?> s) {
+        switch (this) {
+            case BLOCKING -> {
+                s.sleeping = true;
+                // the publisher checks the flag after making its event visible, so one of the two sees the other
+                if (!s.hasAvailable()) LockSupport.parkNanos(s, MAX_PARK_NANOS);
+                s.sleeping = false;
+                return 0;
+            }
+            case SLEEPING -> {
+                if (tries < SPIN_TRIES) Thread.onSpinWait();
+                else if (tries < YIELD_TRIES) Thread.yield();
+                else LockSupport.parkNanos(SLEEP_NANOS);
+                return Math.min(tries + 1, YIELD_TRIES);
+            }
+            case YIELDING -> {
+                if (tries < SPIN_TRIES) Thread.onSpinWait();
+                else Thread.yield();
+                return Math.min(tries + 1, SPIN_TRIES);
+            }
+            default -> {
+                Thread.onSpinWait();
+                return tries;
+            }
+        }
+    }
+}
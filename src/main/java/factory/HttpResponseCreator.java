@@ -1,7 +1,24 @@
 package factory;
 
+import model.HeaderBlock;
 import model.HttpResponse;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 public abstract class HttpResponseCreator {
+    // Server/Content-Type pairs are few (one per server name and mime type), so their encoded blocks are kept for reuse.
+    private static final Map<String, HeaderBlock> CONSTANT_HEADERS = new ConcurrentHashMap<>();
+
     public abstract HttpResponse createResponse(int statusCode, String body);
+
+    protected static HeaderBlock constantHeaders(String serverName, String contentType) {
+        return CONSTANT_HEADERS.computeIfAbsent(serverName + '\n' + contentType, k -> {
+            Map<String, String> headers = new LinkedHashMap<>();
+            headers.put("Server", serverName);
+            headers.put("Content-Type", contentType);
+            return HeaderBlock.of(headers);
+        });
+    }
 }
@@ -2,11 +2,13 @@ package factory;
 
 import builder.HttpResponseBuilder;
 import builder.IHttpResponseBuilder;
+import model.HeaderBlock;
 import model.HttpResponse;
 
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
 import java.util.Locale;
+import java.util.Map;
 
 public class StaticFileResponseCreator extends HttpResponseCreator {
     private final String serverName;
@@ -24,30 +26,70 @@ public class StaticFileResponseCreator extends HttpResponseCreator {
     @Override
     public HttpResponse createResponse(int statusCode, String body) {
         IHttpResponseBuilder builder = new HttpResponseBuilder();
-        String ct = normalizeContentTypeForText(mimeType);
 
         return builder
                 .setStatusCode(statusCode)
-                .setHeader("Server", serverName)
-                .setHeader("Content-Type", ct)
-                .setHeader("Date", ZonedDateTime.now().format(DateTimeFormatter.RFC_1123_DATE_TIME))
+                .setHeaderBlock(constantHeaders(serverName, normalizeContentTypeForText(mimeType)))
                 .setBody(body)
                 .build();
     }
 
     public HttpResponse createResponse(int statusCode, byte[] bodyBytes) {
         IHttpResponseBuilder builder = new HttpResponseBuilder();
-        String ct = normalizeContentTypeForText(mimeType);
 
         return builder
                 .setStatusCode(statusCode)
-                .setHeader("Server", serverName)
-                .setHeader("Content-Type", ct)
-                .setHeader("Date", ZonedDateTime.now().format(DateTimeFormatter.RFC_1123_DATE_TIME))
+                .setHeaderBlock(constantHeaders(serverName, normalizeContentTypeForText(mimeType)))
                 .setBodyBytes(bodyBytes)
                 .build();
     }
 
+    public HttpResponse createFileResponse(int statusCode, Path file, long offset, long length, Map<String, String> extraHeaders) {
+        IHttpResponseBuilder builder = new HttpResponseBuilder();
+
+        builder.setStatusCode(statusCode)
+                .setHeaderBlock(constantHeaders(serverName, normalizeContentTypeForText(mimeType)));
+        if (extraHeaders != null) extraHeaders.forEach(builder::setHeader);
+
+        return builder.setBodyFile(file, offset, length).build();
+    }
+
+    public HeaderBlock createHeaderBlock(long contentLength, Map<String, String> extraHeaders) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("Server", serverName);
+        headers.put("Content-Type", normalizeContentTypeForText(mimeType));
+        if (extraHeaders != null) headers.putAll(extraHeaders);
+        headers.put("Content-Length", String.valueOf(contentLength));
+        return HeaderBlock.of(headers);
+    }
+
+    public HeaderBlock createNotModifiedHeaderBlock(Map<String, String> validators) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("Server", serverName);
+        headers.putAll(validators);
+        return HeaderBlock.of(headers);
+    }
+
+    // Pre-encoded header blocks already hold everything the response needs, so these need no creator.
+    public static HttpResponse createNotModifiedResponse(HeaderBlock headers) {
+        return new HttpResponseBuilder()
+                .setStatusCode(304)
+                .setHeaderBlock(headers)
+                .build();
+    }
+
+    public HttpResponse createNotModifiedResponse(Map<String, String> validators) {
+        return createNotModifiedResponse(createNotModifiedHeaderBlock(validators));
+    }
+
+    public static HttpResponse createPreEncodedResponse(int statusCode, HeaderBlock headers, byte[] bodyBytes) {
+        return new HttpResponseBuilder()
+                .setStatusCode(statusCode)
+                .setHeaderBlock(headers)
+                .setSharedBodyBytes(bodyBytes)
+                .build();
+    }
+
     private String normalizeContentTypeForText(String ct) {
         String lower = ct.toLowerCase(Locale.ROOT);
         if (lower.startsWith("text/") || lower.contains("json") || lower.contains("xml") || lower.contains("html")) {
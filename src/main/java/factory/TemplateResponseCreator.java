@@ -2,20 +2,21 @@ package factory;
 
 import builder.HttpResponseBuilder;
 import builder.IHttpResponseBuilder;
+import model.ChunkedBody;
+import model.HeaderBlock;
 import model.HttpResponse;
 
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.Map;
 
 public class TemplateResponseCreator extends HttpResponseCreator {
-    private final String serverName;
+    private final HeaderBlock headers;
 
     public TemplateResponseCreator() {
         this("JavaHTTP/1.0");
     }
 
     public TemplateResponseCreator(String serverName) {
-        this.serverName = serverName == null ? "JavaHTTP/1.0" : serverName;
+        this.headers = constantHeaders(serverName == null ? "JavaHTTP/1.0" : serverName, "text/html; charset=UTF-8");
     }
 
     @Override
@@ -24,10 +25,30 @@ public class TemplateResponseCreator extends HttpResponseCreator {
 
         return builder
                 .setStatusCode(statusCode)
-                .setHeader("Server", serverName)
-                .setHeader("Content-Type", "text/html; charset=UTF-8")
-                .setHeader("Date", ZonedDateTime.now().format(DateTimeFormatter.RFC_1123_DATE_TIME))
+                .setHeaderBlock(headers)
                 .setBody(body)
                 .build();
     }
+
+    public HttpResponse createStreamingResponse(int statusCode, ChunkedBody.BodyWriter writer) {
+        return createStreamingResponse(statusCode, Map.of(), writer);
+    }
+
+    public HttpResponse createStreamingResponse(int statusCode, Map<String, String> extraHeaders, ChunkedBody.BodyWriter writer) {
+        IHttpResponseBuilder builder = new HttpResponseBuilder();
+
+        builder.setStatusCode(statusCode)
+                .setHeaderBlock(headers);
+        extraHeaders.forEach(builder::setHeader);
+        return builder.setBodyStream(writer).build();
+    }
+
+    public HttpResponse createNotModifiedResponse(Map<String, String> validators) {
+        IHttpResponseBuilder builder = new HttpResponseBuilder();
+
+        builder.setStatusCode(304)
+                .setHeader("Server", headers.get("Server"));
+        validators.forEach(builder::setHeader);
+        return builder.build();
+    }
 }
@@ -0,0 +1,7 @@
+package http;
+
+// Largest request body accepted for a method and target; consulted as soon as the head is parsed.
+@FunctionalInterface
+public interface BodyLimit {
+    long maxBodyBytes(String method, String url);
+}
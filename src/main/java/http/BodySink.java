@@ -0,0 +1,86 @@
+package http;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Collects a request body in memory and moves it to a temp file once it grows past the spill threshold.
+final class BodySink {
+    private static final int INITIAL_CHUNKED_BYTES = 8 * 1024;
+
+    private final long spillBytes;
+    private byte[] buf;
+    private int len;
+    private Path file;
+    private FileChannel channel;
+    private long size;
+
+    // expected is the Content-Length, or -1 for a chunked body of unknown size
+    BodySink(long expected, long spillBytes) throws IOException {
+        this.spillBytes = spillBytes;
+        if (expected > spillBytes) {
+            openFile();
+        } else {
+            buf = new byte[(int) (expected >= 0 ? expected : Math.min(spillBytes, INITIAL_CHUNKED_BYTES))];
+        }
+    }
+
+    void write(ByteBuffer src, int n) throws IOException {
+        if (channel == null && len + (long) n > spillBytes) {
+            openFile();
+            channel.write(ByteBuffer.wrap(buf, 0, len));
+            buf = null;
+        }
+
+        if (channel != null) {
+            ByteBuffer slice = src.slice(src.position(), n);
+            while (slice.hasRemaining()) channel.write(slice);
+            src.position(src.position() + n);
+        } else {
+            if (len + n > buf.length) buf = Arrays.copyOf(buf, (int) Math.min(spillBytes, Math.max(buf.length * 2L, len + n)));
+            src.get(buf, len, n);
+            len += n;
+        }
+        size += n;
+    }
+
+    long size() {
+        return size;
+    }
+
+    boolean spilled() {
+        return file != null;
+    }
+
+    byte[] bytes() {
+        return buf.length == len ? buf : Arrays.copyOf(buf, len);
+    }
+
+    // Hands the finished file over to the request, which deletes it once the response is written.
+    Path finishFile() throws IOException {
+        channel.close();
+        channel = null;
+        return file;
+    }
+
+    void discard() {
+        if (file == null) return;
+        try {
+            if (channel != null) channel.close();
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("Failed to delete request body spill " + file + ": " + e.getMessage());
+        }
+        channel = null;
+        file = null;
+    }
+
+    private void openFile() throws IOException {
+        file = Files.createTempFile("http-body-", ".tmp");
+        channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+}
@@ -0,0 +1,9 @@
+package http;
+
+public class BodyTooLargeException extends HttpParseException {
+    private static final long serialVersionUID = 1L;
+
+    public BodyTooLargeException(long limit) {
+        super("Request body exceeds " + limit + " bytes");
+    }
+}
@@ -0,0 +1,90 @@
+package http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+public final class ChunkedOutputStream extends OutputStream {
+    // room for up to 8 hex digits plus CRLF in front of the buffered data
+    private static final int HEAD_ROOM = 10;
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final OutputStream out;
+    private final int chunkSize;
+    private final byte[] buf;
+    private int count = 0;
+    private boolean finished = false;
+
+    public ChunkedOutputStream(OutputStream out) {
+        this(out, 8192);
+    }
+
+    public ChunkedOutputStream(OutputStream out, int chunkSize) {
+        this.out = out;
+        this.chunkSize = chunkSize;
+        this.buf = new byte[HEAD_ROOM + chunkSize + 2];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (count == chunkSize) flushBuffer();
+        buf[HEAD_ROOM + count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        if (len >= chunkSize) {
+            flushBuffer();
+            out.write(chunkHeader(len));
+            out.write(b, off, len);
+            out.write(CRLF);
+            return;
+        }
+        if (len > chunkSize - count) flushBuffer();
+        System.arraycopy(b, off, buf, HEAD_ROOM + count, len);
+        count += len;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    // Writes the terminating chunk; the underlying stream stays open for the next response.
+    public void finish() throws IOException {
+        if (finished) return;
+        flushBuffer();
+        out.write(LAST_CHUNK);
+        out.flush();
+        finished = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+    }
+
+    // Frames the buffered data in place so each chunk goes out in a single write.
+    private void flushBuffer() throws IOException {
+        if (count == 0) return;
+        byte[] head = chunkHeader(count);
+        int start = HEAD_ROOM - head.length;
+        System.arraycopy(head, 0, buf, start, head.length);
+        buf[HEAD_ROOM + count] = '\r';
+        buf[HEAD_ROOM + count + 1] = '\n';
+        out.write(buf, start, head.length + count + 2);
+        count = 0;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (finished) throw new IOException("Chunked stream already finished");
+    }
+
+    private static byte[] chunkHeader(int len) {
+        return (Integer.toHexString(len) + "\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,126 @@
+package http;
+
+import model.ChunkedBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Content codings we can produce. Brotli has no JDK encoder, so only gzip and deflate are offered.
+public enum ContentEncoding {
+    GZIP("gzip"),
+    DEFLATE("deflate");
+
+    private final String token;
+
+    ContentEncoding(String token) {
+        this.token = token;
+    }
+
+    public String token() {
+        return token;
+    }
+
+    // Picks the coding with the highest q-value; gzip wins ties. Returns null when identity should be sent.
+    public static ContentEncoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) return null;
+
+        float gzip = GZIP.quality(acceptEncoding);
+        float deflate = DEFLATE.quality(acceptEncoding);
+        if (gzip > 0 && gzip >= deflate) return GZIP;
+        if (deflate > 0) return DEFLATE;
+        return null;
+    }
+
+    public boolean acceptedBy(String acceptEncoding) {
+        return acceptEncoding != null && quality(acceptEncoding) > 0;
+    }
+
+    private float quality(String acceptEncoding) {
+        float any = 0f;
+        for (String part : acceptEncoding.split(",")) {
+            String item = part.trim();
+            float q = 1f;
+            int semi = item.indexOf(';');
+            if (semi >= 0) {
+                q = parseQ(item.substring(semi + 1));
+                item = item.substring(0, semi).trim();
+            }
+            if (item.equalsIgnoreCase(token) || (this == GZIP && item.equalsIgnoreCase("x-gzip"))) return q;
+            if (item.equals("*")) any = q;
+        }
+        return any;
+    }
+
+    public static boolean isCompressible(String contentType) {
+        if (contentType == null) return false;
+        String ct = contentType.toLowerCase(Locale.ROOT);
+        return ct.startsWith("text/") || ct.contains("json") || ct.contains("javascript")
+                || ct.contains("xml") || ct.contains("svg");
+    }
+
+    public byte[] encode(byte[] data) {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(Math.max(64, data.length / 3));
+        try {
+            encode(out -> out.write(data), buf);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return buf.toByteArray();
+    }
+
+    // Streams the body through the encoder; the target is finished but not closed.
+    public void encode(ChunkedBody.BodyWriter writer, OutputStream target) throws IOException {
+        Encoder enc = open(target);
+        try {
+            writer.writeTo(enc.out());
+            enc.finish();
+        } finally {
+            enc.deflater().end();
+        }
+    }
+
+    private record Encoder(DeflaterOutputStream out, Deflater deflater) {
+        void finish() throws IOException {
+            out.finish();
+            out.flush();
+        }
+    }
+
+    private Encoder open(OutputStream target) throws IOException {
+        if (this == GZIP) {
+            GzipStream gz = new GzipStream(target);
+            return new Encoder(gz, gz.deflater());
+        }
+        Deflater d = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        return new Encoder(new DeflaterOutputStream(target, d, 8192), d);
+    }
+
+    private static float parseQ(String params) {
+        for (String p : params.split(";")) {
+            String t = p.trim();
+            if (t.length() > 2 && (t.charAt(0) == 'q' || t.charAt(0) == 'Q') && t.charAt(1) == '=') {
+                try {
+                    return Float.parseFloat(t.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0f;
+                }
+            }
+        }
+        return 1f;
+    }
+
+    private static final class GzipStream extends GZIPOutputStream {
+        GzipStream(OutputStream out) throws IOException {
+            super(out, 8192);
+        }
+
+        Deflater deflater() {
+            return def;
+        }
+    }
+}
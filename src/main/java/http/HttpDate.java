@@ -0,0 +1,56 @@
+package http;
+
+import config.ServerConfig;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Date header value shared by all responses, re-formatted once per second by a background clock.
+public final class HttpDate {
+    private record Stamp(long second, String value, byte[] header) {}
+
+    private static volatile Stamp current = stamp(System.currentTimeMillis() / 1000);
+
+    static {
+        ScheduledExecutorService clock = Executors.newSingleThreadScheduledExecutor(
+                ServerConfig.threadFactory("HttpDateClock", true));
+        long delay = 1000 - System.currentTimeMillis() % 1000;
+        clock.scheduleAtFixedRate(HttpDate::tick, delay, 1000, TimeUnit.MILLISECONDS);
+    }
+
+    private HttpDate() {}
+
+    public static String now() {
+        return fresh().value();
+    }
+
+    // "Date: ...\r\n", shared and must not be modified by callers.
+    public static byte[] header() {
+        return fresh().header();
+    }
+
+    private static void tick() {
+        long second = System.currentTimeMillis() / 1000;
+        if (current.second() != second) current = stamp(second);
+    }
+
+    // Covers a clock thread that fell behind (e.g. a long GC pause) without formatting on every call.
+    private static Stamp fresh() {
+        Stamp s = current;
+        if (System.currentTimeMillis() / 1000 - s.second() > 1) {
+            tick();
+            s = current;
+        }
+        return s;
+    }
+
+    private static Stamp stamp(long second) {
+        String value = DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochSecond(second).atOffset(ZoneOffset.UTC));
+        return new Stamp(second, value, ("Date: " + value + "\r\n").getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,332 @@
+package http;
+
+import config.ServerConfig;
+import model.HttpRequest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public final class HttpRequestDecoder {
+    private static final int MAX_HEAD_BYTES = 64 * 1024;
+    private static final int MAX_LINE_BYTES = 1024;
+    // 15 hex digits stay below 2^60, so a parsed chunk size can never overflow a long
+    private static final int MAX_CHUNK_SIZE_DIGITS = 15;
+
+    private enum State { HEAD, BODY, CHUNK_SIZE, CHUNK_DATA, CHUNK_END, TRAILER }
+
+    private final BodyLimit limit;
+    private final long spillBytes;
+
+    private State state = State.HEAD;
+
+    private byte[] head = new byte[512];
+    private int headLen = 0;
+
+    private String method;
+    private String url;
+    private String version;
+    private LazyHeaders headers;
+
+    private BodySink body;
+    private long maxBody;
+    private long bodyRemaining;
+    private long chunkRemaining;
+    private boolean expectContinue;
+    private final StringBuilder line = new StringBuilder();
+
+    public HttpRequestDecoder() {
+        this((method, url) -> ServerConfig.MAX_REQUEST_BODY_BYTES, ServerConfig.REQUEST_BODY_SPILL_BYTES);
+    }
+
+    public HttpRequestDecoder(BodyLimit limit) {
+        this(limit, ServerConfig.REQUEST_BODY_SPILL_BYTES);
+    }
+
+    public HttpRequestDecoder(BodyLimit limit, long spillBytes) {
+        this.limit = limit;
+        this.spillBytes = spillBytes;
+    }
+
+    // Throws BodyTooLargeException (a parse error) as soon as the declared or received body passes the limit.
+    public HttpRequest decode(ByteBuffer src) throws IOException {
+        while (src.hasRemaining()) {
+            switch (state) {
+                case HEAD -> {
+                    if (readHead(src)) {
+                        parseHead();
+                        if (state == State.HEAD) return complete();
+                    }
+                }
+                case BODY -> {
+                    int n = (int) Math.min(src.remaining(), bodyRemaining);
+                    body.write(src, n);
+                    bodyRemaining -= n;
+                    if (bodyRemaining == 0) return complete();
+                }
+                case CHUNK_SIZE -> {
+                    if (readLine(src)) {
+                        String sizeLine = line.toString().trim();
+                        line.setLength(0);
+                        int semi = sizeLine.indexOf(';');
+                        if (semi > 0) sizeLine = sizeLine.substring(0, semi).trim();
+                        chunkRemaining = parseChunkSize(sizeLine);
+                        if (chunkRemaining > maxBody - body.size()) throw new BodyTooLargeException(maxBody);
+                        state = chunkRemaining == 0 ? State.TRAILER : State.CHUNK_DATA;
+                    }
+                }
+                case CHUNK_DATA -> {
+                    int n = (int) Math.min(src.remaining(), chunkRemaining);
+                    body.write(src, n);
+                    chunkRemaining -= n;
+                    if (chunkRemaining == 0) state = State.CHUNK_END;
+                }
+                case CHUNK_END -> {
+                    if (readLine(src)) {
+                        line.setLength(0);
+                        state = State.CHUNK_SIZE;
+                    }
+                }
+                case TRAILER -> {
+                    if (readLine(src)) {
+                        if (line.isEmpty()) return complete();
+                        line.setLength(0);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    public boolean hasPartialRequest() {
+        return state != State.HEAD || headLen > 0;
+    }
+
+    // True once per request whose head asked for "Expect: 100-continue" and whose body hasn't arrived yet;
+    // the caller then sends the interim response before waiting for more input.
+    public ReadProgress.Phase phase() {
+        if (state != State.HEAD) return ReadProgress.Phase.BODY;
+        return headLen > 0 ? ReadProgress.Phase.HEADER : ReadProgress.Phase.IDLE;
+    }
+
+    public boolean takeExpectContinue() {
+        boolean e = expectContinue && state != State.HEAD;
+        expectContinue = false;
+        return e;
+    }
+
+    // Also deletes the temp file of a body that was cut off mid-way.
+    public void reset() {
+        if (body != null) body.discard();
+        state = State.HEAD;
+        headLen = 0;
+        method = null;
+        url = null;
+        version = null;
+        headers = null;
+        body = null;
+        maxBody = 0;
+        bodyRemaining = 0;
+        chunkRemaining = 0;
+        expectContinue = false;
+        line.setLength(0);
+    }
+
+    // Scans for the blank line that ends the head and copies everything up to it in one go.
+    private boolean readHead(ByteBuffer src) throws HttpParseException {
+        if (headLen == 0) {
+            while (src.hasRemaining()) {
+                byte b = src.get(src.position());
+                if (b != '\r' && b != '\n') break;
+                src.position(src.position() + 1);
+            }
+        }
+
+        int start = src.position();
+        int limit = src.limit();
+        int end = -1;
+        for (int i = start; i < limit; i++) {
+            if (src.get(i) != '\n') continue;
+            if (endsHead(src, start, i)) {
+                end = i + 1;
+                break;
+            }
+        }
+
+        int n = (end < 0 ? limit : end) - start;
+        if (headLen + n > MAX_HEAD_BYTES) throw new HttpParseException("Request head too large");
+        if (headLen + n > head.length) {
+            head = Arrays.copyOf(head, Math.min(MAX_HEAD_BYTES, Math.max(head.length * 2, headLen + n)));
+        }
+        src.get(head, headLen, n);
+        headLen += n;
+        return end >= 0;
+    }
+
+    // True if the LF at index i is preceded by LF or CRLF, looking back into the bytes copied earlier if needed.
+    private boolean endsHead(ByteBuffer src, int start, int i) {
+        int p1 = byteBefore(src, start, i, 1);
+        if (p1 == '\n') return true;
+        return p1 == '\r' && byteBefore(src, start, i, 2) == '\n';
+    }
+
+    private int byteBefore(ByteBuffer src, int start, int i, int back) {
+        int idx = i - back;
+        if (idx >= start) return src.get(idx);
+        int h = headLen - (start - idx);
+        return h >= 0 ? head[h] : -1;
+    }
+
+    private boolean readLine(ByteBuffer src) throws HttpParseException {
+        while (src.hasRemaining()) {
+            byte b = src.get();
+            if (b == '\n') return true;
+            if (b == '\r') continue;
+            if (line.length() >= MAX_LINE_BYTES) throw new HttpParseException("Chunk line too long");
+            line.append((char) (b & 0xFF));
+        }
+        return false;
+    }
+
+    private void parseHead() throws IOException {
+        int pos = 0;
+        int eol = lineEnd(pos);
+        String requestLine = new String(head, pos, trimCR(pos, eol), StandardCharsets.ISO_8859_1);
+        pos = eol + 1;
+
+        String[] parts = requestLine.split(" ");
+        method = parts.length > 0 && !parts[0].isEmpty() ? parts[0] : "GET";
+        url = parts.length > 1 ? parts[1] : "/";
+        version = parts.length > 2 ? parts[2] : "HTTP/1.1";
+
+        byte[] raw = Arrays.copyOf(head, headLen);
+        int max = 16;
+        String[] names = new String[max];
+        int[] valueStart = new int[max];
+        int[] valueEnd = new int[max];
+        int count = 0;
+        while (pos < headLen) {
+            eol = lineEnd(pos);
+            int lineEnd = pos + trimCR(pos, eol);
+            if (lineEnd == pos) break;
+
+            int colon = indexOf(raw, (byte) ':', pos, lineEnd);
+            if (colon > pos) {
+                int ns = pos, ne = colon;
+                while (ns < ne && raw[ns] <= ' ') ns++;
+                while (ne > ns && raw[ne - 1] <= ' ') ne--;
+                int vs = colon + 1, ve = lineEnd;
+                while (vs < ve && raw[vs] <= ' ') vs++;
+                while (ve > vs && raw[ve - 1] <= ' ') ve--;
+
+                if (ne > ns) {
+                    String name = LazyHeaders.name(raw, ns, ne);
+                    int slot = count;
+                    for (int k = 0; k < count; k++) {
+                        if (names[k].equals(name)) {
+                            slot = k;
+                            break;
+                        }
+                    }
+                    if (slot == count) {
+                        if (count == max) {
+                            max *= 2;
+                            names = Arrays.copyOf(names, max);
+                            valueStart = Arrays.copyOf(valueStart, max);
+                            valueEnd = Arrays.copyOf(valueEnd, max);
+                        }
+                        count++;
+                    }
+                    names[slot] = name;
+                    valueStart[slot] = vs;
+                    valueEnd[slot] = ve;
+                }
+            }
+            pos = eol + 1;
+        }
+        headers = new LazyHeaders(raw, names, valueStart, valueEnd, count);
+
+        String cl = headers.getIgnoreCase("Content-Length");
+        String te = headers.getIgnoreCase("Transfer-Encoding");
+        boolean isChunked = te != null && te.equalsIgnoreCase("chunked");
+        if (!isChunked && cl == null) {
+            body = null;
+            state = State.HEAD;
+            return;
+        }
+
+        // chunked wins over Content-Length when both are sent
+        long len = -1;
+        if (!isChunked) {
+            try {
+                len = Long.parseLong(cl.trim());
+            } catch (NumberFormatException e) {
+                throw new HttpParseException("Invalid Content-Length: " + cl);
+            }
+            if (len < 0) throw new HttpParseException("Invalid Content-Length: " + cl);
+        }
+
+        maxBody = limit.maxBodyBytes(method, url);
+        if (len > maxBody) throw new BodyTooLargeException(maxBody);
+
+        String expect = headers.getIgnoreCase("Expect");
+        expectContinue = expect != null && expect.equalsIgnoreCase("100-continue")
+                && version.equalsIgnoreCase("HTTP/1.1") && len != 0;
+
+        body = new BodySink(len, spillBytes);
+        if (isChunked) {
+            line.setLength(0);
+            state = State.CHUNK_SIZE;
+        } else {
+            bodyRemaining = len;
+            state = len > 0 ? State.BODY : State.HEAD;
+        }
+    }
+
+    private long parseChunkSize(String sizeLine) throws HttpParseException {
+        int start = 0;
+        while (start < sizeLine.length() - 1 && sizeLine.charAt(start) == '0') start++;
+        for (int i = start; i < sizeLine.length(); i++) {
+            char c = sizeLine.charAt(i);
+            boolean hex = (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+            if (!hex) throw new HttpParseException("Invalid chunk size: " + sizeLine);
+        }
+        if (sizeLine.length() - start > MAX_CHUNK_SIZE_DIGITS) throw new BodyTooLargeException(maxBody);
+        return sizeLine.isEmpty() ? 0 : Long.parseLong(sizeLine, start, sizeLine.length(), 16);
+    }
+
+    private static int indexOf(byte[] buf, byte b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buf[i] == b) return i;
+        }
+        return -1;
+    }
+
+    private int lineEnd(int from) {
+        for (int i = from; i < headLen; i++) {
+            if (head[i] == '\n') return i;
+        }
+        return headLen;
+    }
+
+    private int trimCR(int from, int eol) {
+        int end = eol;
+        if (end > from && head[end - 1] == '\r') end--;
+        return end - from;
+    }
+
+    private HttpRequest complete() throws IOException {
+        HttpRequest req;
+        if (body == null) {
+            req = new HttpRequest(method, url, version, headers, (byte[]) null);
+        } else if (body.spilled()) {
+            req = new HttpRequest(method, url, version, headers, body.finishFile(), body.size());
+        } else {
+            req = new HttpRequest(method, url, version, headers, body.bytes());
+        }
+        body = null;
+        reset();
+        return req;
+    }
+}
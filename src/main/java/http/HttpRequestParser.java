@@ -2,36 +2,71 @@ package http;
 
 import model.HttpRequest;
 
-import java.io.*;
-import java.nio.charset.StandardCharsets;
-import java.util.Map;
-
-import static http.HttpUtils.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
+// Per-connection request reader: fills one reusable buffer with bulk reads and feeds it to HttpRequestDecoder.
 public class HttpRequestParser {
+    private static final int BUFFER_SIZE = 16 * 1024;
 
-    private static final int PUSHBACK_BUFFER = 1;
-
-    public static HttpRequest parse(InputStream rawIn) throws IOException {
-        InputStream in = (rawIn instanceof PushbackInputStream) ? rawIn : new PushbackInputStream(rawIn, PUSHBACK_BUFFER);
+    private final InputStream in;
+    private final OutputStream out;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).flip();
+    private final HttpRequestDecoder decoder;
+    private final ReadProgress progress;
 
-        String requestLine = readLineCRLF(in);
-        if (requestLine == null || requestLine.isEmpty()) return null;
-
-        String[] parts = requestLine.split(" ");
-        String method = parts.length > 0 ? parts[0] : "GET";
-        String url = parts.length > 1 ? parts[1] : "/";
-        String version = parts.length > 2 ? parts[2] : "HTTP/1.1";
+    // out receives the "100 Continue" interim response for clients that wait for it before sending a body
+    public HttpRequestParser(InputStream in, OutputStream out, BodyLimit limit, ReadProgress progress) {
+        this.in = in;
+        this.out = out;
+        this.decoder = new HttpRequestDecoder(limit);
+        this.progress = progress;
+    }
 
-        Map<String, String> headers = readHeaders(in);
+    // Returns null on a clean end of stream between requests.
+    public HttpRequest parse() throws IOException {
+        ReadProgress.Phase reported = null;
+        while (true) {
+            if (buffer.hasRemaining()) {
+                HttpRequest request = decoder.decode(buffer);
+                if (request != null) return request;
+            }
+            ReadProgress.Phase phase = decoder.phase();
+            if (phase != reported) {
+                progress.reading(phase);
+                reported = phase;
+            }
+            if (decoder.takeExpectContinue()) {
+                out.write(ResponseWriter.CONTINUE);
+                out.flush();
+            }
 
-        byte[] bodyBytes = readRequestBodyBytes(in, headers);
-        String body = null;
-        if (bodyBytes != null) {
-            body = bodyBytes.length == 0 ? "" : new String(bodyBytes, StandardCharsets.UTF_8);
+            buffer.clear();
+            int n = in.read(buffer.array(), 0, buffer.capacity());
+            if (n < 0) {
+                buffer.limit(0);
+                if (decoder.hasPartialRequest()) throw new HttpParseException("Connection closed mid-request");
+                return null;
+            }
+            buffer.limit(n);
         }
+    }
+
+    // Decodes only what is already buffered; never blocks on the socket.
+    public HttpRequest parseBuffered() throws IOException {
+        if (!buffer.hasRemaining()) return null;
+        return decoder.decode(buffer);
+    }
 
+    // True when bytes of a further request have already been read from the socket.
+    public boolean hasBufferedInput() {
+        return buffer.hasRemaining();
+    }
 
-        return new HttpRequest(method, url, version, headers, body);
+    // Drops a partially received request, deleting its body spill file if there is one.
+    public void close() {
+        decoder.reset();
     }
 }
@@ -1,10 +1,17 @@
 package http;
 
+import model.ChunkedBody;
+import model.FileBody;
+import model.HeaderBlock;
 import model.HttpResponse;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.Map;
 
 public final class HttpResponseSerializer {
@@ -26,20 +33,33 @@ public final class HttpResponseSerializer {
         String statusMsg = resp.statusMessage() == null ? "" : resp.statusMessage();
         sb.append("HTTP/1.1 ").append(resp.statusCode()).append(" ").append(statusMsg).append("\r\n");
 
-        boolean hasContentLength = false;
+        HeaderBlock block = resp.headerBlock();
+        if (block != null) {
+            out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+            out.write(block.encoded());
+            sb.setLength(0);
+        }
+
+        boolean hasContentLength = block != null && block.contains("Content-Length");
+        boolean hasDate = block != null && block.contains("Date");
         Map<String, String> headers = resp.headers();
         if (headers != null) {
             for (var e : headers.entrySet()) {
                 String k = e.getKey();
                 String v = e.getValue();
                 if (k == null) continue;
+                if (block != null && block.contains(k)) continue;
                 if (k.equalsIgnoreCase("Content-Length")) hasContentLength = true;
+                else if (k.equalsIgnoreCase("Date")) hasDate = true;
                 sb.append(k).append(": ").append(v).append("\r\n");
             }
         }
 
-        if (!hasContentLength) {
-            sb.append("Content-Length: ").append(bodyBytes.length).append("\r\n");
+        if (!hasDate) sb.append("Date: ").append(HttpDate.now()).append("\r\n");
+
+        long len = resp.streamBody() != null ? resp.streamBody().length() : bodyBytes.length;
+        if (!hasContentLength && len >= 0 && !isBodiless(resp.statusCode())) {
+            sb.append("Content-Length: ").append(len).append("\r\n");
         }
 
         sb.append("\r\n");
@@ -49,4 +69,34 @@ public final class HttpResponseSerializer {
 
         return out.toByteArray();
     }
+
+    // 1xx, 204 and 304 never carry a body, so no Content-Length is made up for them.
+    public static boolean isBodiless(int statusCode) {
+        return statusCode < 200 || statusCode == 204 || statusCode == 304;
+    }
+
+    public static void writeChunked(ChunkedBody body, OutputStream target) throws IOException {
+        ChunkedOutputStream chunked = new ChunkedOutputStream(target);
+        try {
+            body.writer().writeTo(chunked);
+        } catch (RuntimeException e) {
+            // the head is already on the wire, so the only way to signal failure is to not finish the stream
+            throw new IOException("Streaming body failed: " + e.getMessage(), e);
+        }
+        chunked.finish();
+    }
+
+    public static void transferFile(FileBody file, WritableByteChannel target) throws IOException {
+        if (file.length() == 0) return;
+        try (FileChannel fc = FileChannel.open(file.path(), StandardOpenOption.READ)) {
+            long pos = file.offset();
+            long remaining = file.length();
+            while (remaining > 0) {
+                long n = fc.transferTo(pos, remaining, target);
+                if (n <= 0 && pos >= fc.size()) throw new IOException("File truncated while sending: " + file.path());
+                pos += n;
+                remaining -= n;
+            }
+        }
+    }
 }
@@ -3,10 +3,17 @@ package http;
 import java.io.*;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 
 public final class HttpUtils {
     private static final int DEFAULT_PUSHBACK = 1;
+    private static final DateTimeFormatter HTTP_DATE =
+            DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
 
     private HttpUtils() {}
 
@@ -83,6 +90,7 @@ public final class HttpUtils {
 
     public static String getHeaderIgnoreCase(Map<String, String> headers, String name) {
         if (headers == null) return null;
+        if (headers instanceof LazyHeaders lazy) return lazy.getIgnoreCase(name);
         for (Map.Entry<String, String> e : headers.entrySet()) {
             if (e.getKey().equalsIgnoreCase(name)) return e.getValue();
         }
@@ -130,26 +138,6 @@ public final class HttpUtils {
         }
     }
 
-    public static byte[] readRequestBodyBytes(InputStream in, Map<String,String> headers) throws IOException {
-        String cl = getHeaderIgnoreCase(headers, "Content-Length");
-        String te = getHeaderIgnoreCase(headers, "Transfer-Encoding");
-        if (cl != null) {
-            int len = 0;
-            try {
-                len = Integer.parseInt(cl.trim());
-            } catch (NumberFormatException ignored) {}
-            if (len > 0) {
-                return readExactly(in, len);
-            } else {
-                return new byte[0];
-            }
-        } else if (te != null && te.equalsIgnoreCase("chunked")) {
-            return readChunked(in);
-        } else {
-            return null;
-        }
-    }
-
     public static Map<String, Object> parseFormUrlEncoded(String body) {
         Map<String, Object> ctx = new HashMap<>();
         if (body == null || body.isBlank()) return ctx;
@@ -191,7 +179,7 @@ public final class HttpUtils {
     }
 
     public static Map<String, Object> parseQueryToContext(model.HttpRequest req) {
-        return parseQueryToContext(req == null ? null : req.url());
+        return req == null ? new HashMap<>() : new HashMap<>(req.query());
     }
 
     public static Object tryParseNumberOrString(String v) {
@@ -210,6 +198,19 @@ public final class HttpUtils {
     }
 
 
+    public static String formatHttpDate(Instant instant) {
+        return HTTP_DATE.format(instant.truncatedTo(ChronoUnit.SECONDS));
+    }
+
+    public static Instant parseHttpDate(String value) {
+        if (value == null) return null;
+        try {
+            return Instant.from(DateTimeFormatter.RFC_1123_DATE_TIME.parse(value.trim()));
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
     public static String safeToString(Object o) {
         return o == null ? "" : o.toString();
     }
@@ -0,0 +1,141 @@
+package http;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+// Read-only header map over the raw request head. Names are resolved when parsed, values only when asked for.
+public final class LazyHeaders extends AbstractMap<String, String> {
+    private static final String[] KNOWN_NAMES = {
+            "Host", "Connection", "Content-Length", "Content-Type", "Transfer-Encoding", "Accept",
+            "Accept-Encoding", "Accept-Language", "User-Agent", "Range", "If-Range", "If-None-Match",
+            "If-Modified-Since", "Cookie", "Expect", "Cache-Control", "Keep-Alive", "Origin", "Referer",
+            "Authorization", "Upgrade", "Pragma"
+    };
+    private static final byte[][] KNOWN_BYTES = new byte[KNOWN_NAMES.length][];
+
+    static {
+        for (int i = 0; i < KNOWN_NAMES.length; i++) {
+            KNOWN_BYTES[i] = KNOWN_NAMES[i].getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private final byte[] raw;
+    private final String[] names;
+    private final int[] valueStart;
+    private final int[] valueEnd;
+    private final String[] values;
+    private final int size;
+
+    LazyHeaders(byte[] raw, String[] names, int[] valueStart, int[] valueEnd, int size) {
+        this.raw = raw;
+        this.names = names;
+        this.valueStart = valueStart;
+        this.valueEnd = valueEnd;
+        this.values = new String[size];
+        this.size = size;
+    }
+
+    static String name(byte[] buf, int start, int end) {
+        int len = end - start;
+        for (int k = 0; k < KNOWN_BYTES.length; k++) {
+            byte[] known = KNOWN_BYTES[k];
+            if (known.length == len && equalsIgnoreCaseAscii(known, buf, start)) return KNOWN_NAMES[k];
+        }
+        return new String(buf, start, len, StandardCharsets.ISO_8859_1);
+    }
+
+    public String getIgnoreCase(String name) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (names[i].equalsIgnoreCase(name)) return value(i);
+        }
+        return null;
+    }
+
+    @Override
+    public String get(Object key) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (names[i].equals(key)) return value(i);
+        }
+        return null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        for (int i = 0; i < size; i++) {
+            if (names[i].equals(key)) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                return new Iterator<>() {
+                    private int i = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return i < size;
+                    }
+
+                    @Override
+                    public Entry<String, String> next() {
+                        if (i >= size) throw new NoSuchElementException();
+                        int idx = i++;
+                        return new Entry<>() {
+                            @Override
+                            public String getKey() {
+                                return names[idx];
+                            }
+
+                            @Override
+                            public String getValue() {
+                                return value(idx);
+                            }
+
+                            @Override
+                            public String setValue(String value) {
+                                throw new UnsupportedOperationException();
+                            }
+                        };
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private String value(int i) {
+        String v = values[i];
+        if (v == null) {
+            v = new String(raw, valueStart[i], valueEnd[i] - valueStart[i], StandardCharsets.ISO_8859_1);
+            values[i] = v;
+        }
+        return v;
+    }
+
+    private static boolean equalsIgnoreCaseAscii(byte[] known, byte[] buf, int start) {
+        for (int i = 0; i < known.length; i++) {
+            int a = known[i];
+            int b = buf[start + i];
+            if (a == b) continue;
+            if ((a | 0x20) != (b | 0x20) || (a | 0x20) < 'a' || (a | 0x20) > 'z') return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,11 @@
+package http;
+
+// Told which part of a request the parser is about to block on, so the connection can apply the matching deadline.
+@FunctionalInterface
+public interface ReadProgress {
+    enum Phase { IDLE, HEADER, BODY }
+
+    ReadProgress NONE = phase -> {};
+
+    void reading(Phase phase);
+}
@@ -0,0 +1,232 @@
+package http;
+
+import model.HeaderBlock;
+import model.HttpResponse;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Per-connection response output. Heads are encoded straight into pooled direct buffers, bodies are wrapped
+ * without copying, and everything queued since the last flush goes out in one gathering write.
+ * Not thread-safe; one instance per connection.
+ */
+public final class ResponseWriter {
+    // Shared, must not be modified by callers.
+    public static final byte[] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] HTTP_11 = "HTTP/1.1 ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CONNECTION_CLOSE = "Connection: close\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CONNECTION_KEEP_ALIVE = "Connection: keep-alive\r\nKeep-Alive: timeout=".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MAX = ", max=".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CONTENT_LENGTH = "Content-Length: ".getBytes(StandardCharsets.US_ASCII);
+
+    private final BufferPool pool;
+    private final List<ByteBuffer> pooled = new ArrayList<>();
+    private final List<ByteBuffer> queue = new ArrayList<>();
+    private ByteBuffer current;
+    private ByteBuffer[] pending;
+    private int pendingIndex;
+
+    public ResponseWriter() {
+        this(BufferPool.HEADERS);
+    }
+
+    public ResponseWriter(BufferPool pool) {
+        this.pool = pool;
+    }
+
+    // Queues the status line, headers and in-memory body. Stream bodies are left to the caller.
+    public void add(HttpResponse resp, boolean keepAlive, int keepAliveTimeoutMs, int remainingRequests) {
+        if (pending != null) throw new IllegalStateException("Previous flush not finished");
+
+        byte[] body = bodyBytes(resp);
+        if (current == null) current = acquire();
+
+        int start = current.position();
+        try {
+            writeHead(current, resp, body, keepAlive, keepAliveTimeoutMs, remainingRequests);
+        } catch (BufferOverflowException e) {
+            current.position(start);
+            ByteBuffer fresh = acquire();
+            try {
+                writeHead(fresh, resp, body, keepAlive, keepAliveTimeoutMs, remainingRequests);
+                current = fresh;
+                start = 0;
+            } catch (BufferOverflowException tooLarge) {
+                // head larger than a pooled buffer: encode it on the heap
+                queue.add(ByteBuffer.wrap(encodeHead(resp, body, keepAlive, keepAliveTimeoutMs, remainingRequests)));
+                current = fresh;
+                fresh.clear();
+                if (body.length > 0) queue.add(ByteBuffer.wrap(body));
+                return;
+            }
+        }
+
+        queue.add(current.duplicate().limit(current.position()).position(start));
+        if (body.length > 0) queue.add(ByteBuffer.wrap(body));
+    }
+
+    public boolean hasPending() {
+        return pending != null || !queue.isEmpty();
+    }
+
+    // Returns true once everything is written; on a non-blocking channel it may need to be called again.
+    public boolean flush(WritableByteChannel ch) throws IOException {
+        if (pending == null) {
+            if (queue.isEmpty()) return true;
+            pending = queue.toArray(new ByteBuffer[0]);
+            pendingIndex = 0;
+            queue.clear();
+        }
+
+        while (pendingIndex < pending.length) {
+            long n = ch instanceof GatheringByteChannel g
+                    ? g.write(pending, pendingIndex, pending.length - pendingIndex)
+                    : ch.write(pending[pendingIndex]);
+            while (pendingIndex < pending.length && !pending[pendingIndex].hasRemaining()) pendingIndex++;
+            if (n == 0 && pendingIndex < pending.length) return false;
+        }
+
+        pending = null;
+        releaseAll();
+        return true;
+    }
+
+    public void close() {
+        pending = null;
+        queue.clear();
+        releaseAll();
+    }
+
+    // Heap encoding of the same head, for callers that need a byte[] (and for oversized heads).
+    public static byte[] encodeHead(HttpResponse resp, byte[] body, boolean keepAlive, int keepAliveTimeoutMs, int remainingRequests) {
+        int size = 1024;
+        while (true) {
+            ByteBuffer b = ByteBuffer.allocate(size);
+            try {
+                writeHead(b, resp, body, keepAlive, keepAliveTimeoutMs, remainingRequests);
+                byte[] out = new byte[b.position()];
+                b.flip().get(out);
+                return out;
+            } catch (BufferOverflowException e) {
+                size *= 4;
+            }
+        }
+    }
+
+    public static byte[] bodyBytes(HttpResponse resp) {
+        if (resp.bodyBytes() != null) return resp.bodyBytes();
+        if (resp.body() != null) return resp.body().getBytes(StandardCharsets.UTF_8);
+        return new byte[0];
+    }
+
+    private static void writeHead(ByteBuffer dst, HttpResponse resp, byte[] body,
+                                  boolean keepAlive, int keepAliveTimeoutMs, int remainingRequests) {
+        dst.put(HTTP_11);
+        putInt(dst, resp.statusCode());
+        dst.put((byte) ' ');
+        if (resp.statusMessage() != null) putString(dst, resp.statusMessage());
+        dst.put(CRLF);
+
+        HeaderBlock block = resp.headerBlock();
+        boolean hasContentLength = false;
+        boolean hasDate = false;
+        if (block != null) {
+            dst.put(block.encoded());
+            hasContentLength = block.contains("Content-Length");
+            hasDate = block.contains("Date");
+        }
+
+        Map<String, String> headers = resp.headers();
+        for (var e : headers.entrySet()) {
+            String k = e.getKey();
+            if (k == null) continue;
+            if (block != null && block.contains(k)) continue;
+            if (k.equalsIgnoreCase("Connection") || k.equalsIgnoreCase("Keep-Alive")) continue;
+            if (k.equalsIgnoreCase("Content-Length")) hasContentLength = true;
+            else if (k.equalsIgnoreCase("Date")) hasDate = true;
+            putString(dst, k);
+            dst.put((byte) ':').put((byte) ' ');
+            putString(dst, e.getValue() == null ? "" : e.getValue());
+            dst.put(CRLF);
+        }
+
+        if (!hasDate) dst.put(HttpDate.header());
+
+        long len = resp.streamBody() != null ? resp.streamBody().length() : body.length;
+        if (!hasContentLength && len >= 0 && !HttpResponseSerializer.isBodiless(resp.statusCode())) {
+            dst.put(CONTENT_LENGTH);
+            putLong(dst, len);
+            dst.put(CRLF);
+        }
+
+        if (keepAlive) {
+            dst.put(CONNECTION_KEEP_ALIVE);
+            putInt(dst, keepAliveTimeoutMs / 1000);
+            dst.put(MAX);
+            putInt(dst, remainingRequests);
+            dst.put(CRLF);
+        } else {
+            dst.put(CONNECTION_CLOSE);
+        }
+
+        dst.put(CRLF);
+    }
+
+    private static void putString(ByteBuffer dst, String s) {
+        int n = s.length();
+        for (int i = 0; i < n; i++) {
+            if (s.charAt(i) >= 0x80) {
+                dst.put(s.getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+        }
+        if (dst.remaining() < n) throw new BufferOverflowException();
+        for (int i = 0; i < n; i++) dst.put((byte) s.charAt(i));
+    }
+
+    private static void putInt(ByteBuffer dst, int v) {
+        putLong(dst, v);
+    }
+
+    private static void putLong(ByteBuffer dst, long v) {
+        if (v < 0) {
+            dst.put((byte) '-');
+            v = -v;
+        }
+        if (v < 10) {
+            dst.put((byte) ('0' + v));
+            return;
+        }
+        int digits = 0;
+        for (long t = v; t > 0; t /= 10) digits++;
+        if (dst.remaining() < digits) throw new BufferOverflowException();
+        int end = dst.position() + digits;
+        for (int i = end - 1; i >= dst.position(); i--) {
+            dst.put(i, (byte) ('0' + v % 10));
+            v /= 10;
+        }
+        dst.position(end);
+    }
+
+    private ByteBuffer acquire() {
+        ByteBuffer b = pool.acquire();
+        pooled.add(b);
+        return b;
+    }
+
+    private void releaseAll() {
+        for (ByteBuffer b : pooled) pool.release(b);
+        pooled.clear();
+        current = null;
+    }
+}
@@ -0,0 +1,46 @@
+package http;
+
+import java.time.Instant;
+
+// ETag and Last-Modified checks for conditional GET.
+public final class Validators {
+    private Validators() {}
+
+    // Strong tag from size and mtime: any rewrite of the file changes it, and it needs no read of the body.
+    public static String fileTag(long size, long lastModifiedMillis) {
+        return "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModifiedMillis) + "\"";
+    }
+
+    // The gzip bytes are a different representation, so they get their own strong tag.
+    public static String gzipTag(String tag) {
+        return tag.substring(0, tag.length() - 1) + "-gz\"";
+    }
+
+    // If-None-Match takes precedence; If-Modified-Since is only looked at when it is absent.
+    public static boolean notModified(String ifNoneMatch, String ifModifiedSince, String etag, long lastModifiedMillis) {
+        if (ifNoneMatch != null) return etag != null && matches(ifNoneMatch, etag);
+        if (ifModifiedSince == null || lastModifiedMillis <= 0) return false;
+        Instant since = HttpUtils.parseHttpDate(ifModifiedSince);
+        return since != null && lastModifiedMillis / 1000 <= since.getEpochSecond();
+    }
+
+    // Weak comparison over a comma separated list, as If-None-Match requires.
+    public static boolean matches(String ifNoneMatch, String etag) {
+        String tag = opaque(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String c = candidate.trim();
+            if (c.equals("*") || opaque(c).equals(tag)) return true;
+        }
+        return false;
+    }
+
+    // If-Range allows only a strong comparison.
+    public static boolean strongMatch(String header, String etag) {
+        String h = header.trim();
+        return !h.startsWith("W/") && h.equals(etag);
+    }
+
+    private static String opaque(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
@@ -3,7 +3,10 @@ package logging;
 import events.RequestEvent;
 import events.ResponseEvent;
 import events.EventBus;
+import events.OverflowPolicy;
+import events.SubscriptionOptions;
 
+import java.time.Instant;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class Logger {
@@ -11,18 +14,21 @@ public class Logger {
 
     public Logger() {
         if (registered.compareAndSet(false, true)) {
-            EventBus.getInstance().subscribe(RequestEvent.class, this::onReq);
-            EventBus.getInstance().subscribe(ResponseEvent.class, this::onResp);
+            // console output is the first thing to give up under load
+            EventBus.getInstance().subscribe(RequestEvent.class, this::onReq,
+                    SubscriptionOptions.of("log-requests", OverflowPolicy.SAMPLE));
+            EventBus.getInstance().subscribe(ResponseEvent.class, this::onResp,
+                    SubscriptionOptions.of("log-responses", OverflowPolicy.SAMPLE));
         }
     }
 
     private void onReq(RequestEvent e) {
-        System.out.println("[EVENT] request " + e.request.method() + " " + e.request.url() + " at " + e.ts);
+        System.out.println("[EVENT] request " + e.method + " " + e.route + " at " + Instant.ofEpochMilli(e.timeMillis));
     }
 
     private void onResp(ResponseEvent e) {
-        System.out.println("[EVENT] response " + e.request.method() + " " + e.request.url() +
-                " status=" + (e.response == null ? "null" : e.response.statusCode()) +
+        System.out.println("[EVENT] response " + e.method + " " + e.route +
+                " status=" + e.status + " bytes=" + e.responseBytes +
                 " timeMs=" + String.format("%.2f", e.durationMs()));
     }
 }
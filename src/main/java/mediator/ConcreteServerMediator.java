@@ -18,4 +18,9 @@ public class ConcreteServerMediator implements ServerMediator {
     public HttpResponse handleRequest(HttpRequest request) {
         return handler.Handle(request);
     }
+
+    @Override
+    public long maxBodyBytes(String method, String url) {
+        return handler.maxBodyBytes(method, url);
+    }
 }
\ No newline at end of file
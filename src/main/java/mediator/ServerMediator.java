@@ -1,8 +1,13 @@
 package mediator;
 
+import config.ServerConfig;
 import model.HttpRequest;
 import model.HttpResponse;
 
 public interface ServerMediator {
     HttpResponse handleRequest(HttpRequest request);
+
+    default long maxBodyBytes(String method, String url) {
+        return ServerConfig.MAX_REQUEST_BODY_BYTES;
+    }
 }
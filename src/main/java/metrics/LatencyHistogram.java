@@ -0,0 +1,91 @@
+package metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Fixed-size latency histogram in microseconds with HDR-style log-linear buckets: values below 32us are
+ * exact, above that every power of two is split into 32 buckets, so a reported percentile is at most about 3%
+ * above the true value. Anything past 2^32us (~71 minutes) lands in the last bucket. Recording is one atomic
+ * increment; nothing is allocated or locked.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB = 1 << SUB_BITS;
+    private static final int MAX_EXP = 32;
+    static final int BUCKETS = (MAX_EXP - SUB_BITS + 2) * SUB;
+
+    private static final double[] PERCENTILES = {0.50, 0.90, 0.99, 0.999};
+    private static final String[] PERCENTILE_NAMES = {"p50Ms", "p90Ms", "p99Ms", "p999Ms"};
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos / 1_000);
+        counts.getAndIncrement(index(micros));
+        long m = maxMicros.get();
+        while (micros > m && !maxMicros.compareAndSet(m, micros)) m = maxMicros.get();
+    }
+
+    // Only safe once nothing records into this histogram any more.
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        maxMicros.set(0);
+    }
+
+    // Adds the bucket counts into into and returns the largest value recorded, in microseconds.
+    long addTo(long[] into) {
+        for (int i = 0; i < BUCKETS; i++) into[i] += counts.get(i);
+        return maxMicros.get();
+    }
+
+    static Map<String, Object> summary(long[] counts, long maxMicros) {
+        long total = 0;
+        for (long c : counts) total += c;
+
+        Map<String, Object> s = new LinkedHashMap<>();
+        s.put("count", total);
+        if (total == 0) return s;
+
+        int p = 0;
+        long rank = rank(PERCENTILES[0], total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS && p < PERCENTILES.length; i++) {
+            seen += counts[i];
+            while (p < PERCENTILES.length && seen >= rank) {
+                s.put(PERCENTILE_NAMES[p], millis(Math.min(upperBound(i), maxMicros)));
+                if (++p < PERCENTILES.length) rank = rank(PERCENTILES[p], total);
+            }
+        }
+        s.put("maxMs", millis(maxMicros));
+        return s;
+    }
+
+    static int index(long micros) {
+        if (micros < SUB) return (int) micros;
+        int exp = 63 - Long.numberOfLeadingZeros(micros);
+        if (exp > MAX_EXP) return BUCKETS - 1;
+        int mantissa = (int) (micros >>> (exp - SUB_BITS)) & (SUB - 1);
+        return (exp - SUB_BITS + 1) * SUB + mantissa;
+    }
+
+    // Largest value that maps to the bucket.
+    static long upperBound(int index) {
+        if (index < SUB) return index;
+        int exp = index / SUB + SUB_BITS - 1;
+        int shift = exp - SUB_BITS;
+        long lower = (long) (SUB + index % SUB) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    private static long rank(double percentile, long total) {
+        return Math.max(1, (long) Math.ceil(percentile * total));
+    }
+
+    private static double millis(long micros) {
+        return micros / 1_000.0;
+    }
+}
@@ -1,23 +1,39 @@
 package metrics;
 
+import config.ServerConfig;
 import events.ResponseEvent;
 import events.EventBus;
+import events.OverflowPolicy;
+import events.SubscriptionOptions;
 import db.MetricsRepository;
 import io.github.cdimascio.dotenv.Dotenv;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 public class MetricsCollector {
     private static final AtomicBoolean registered = new AtomicBoolean(false);
+    private static final int MAX_LATENCY_ROUTES = 64;
+    private static final String OTHER_ROUTE = "other";
+    private static final String[] STATUS_CLASSES = {"1xx", "2xx", "3xx", "4xx", "5xx"};
+
     private final AtomicLong totalRequests = new AtomicLong(0);
     private final AtomicLong totalResponseTimeNanos = new AtomicLong(0);
 
-    private final ConcurrentLinkedQueue<Long> timestampsMs = new ConcurrentLinkedQueue<>();
+    private final RateCounter responses = new RateCounter();
+    private final Map<String, MetricsSource> sources = new ConcurrentHashMap<>();
+
+    private final int latencyWindowSeconds = ServerConfig.getPositiveInt("LATENCY_WINDOW_SECONDS", 60);
+    private final LatencyWindow allLatency = new LatencyWindow();
+    private final Map<String, AtomicReferenceArray<LatencyWindow>> routeLatency = new ConcurrentHashMap<>();
 
     private final MetricsRepository repo;
     private final ScheduledExecutorService scheduler;
@@ -43,28 +59,22 @@ public class MetricsCollector {
 
 
         if (registered.compareAndSet(false, true)) {
-            EventBus.getInstance().subscribe(ResponseEvent.class, this::onResponse);
+            EventBus.getInstance().subscribe(ResponseEvent.class, this::onResponse,
+                    SubscriptionOptions.of("metrics", OverflowPolicy.DROP_OLDEST));
         }
 
-        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
-            Thread t = new Thread(r, "MetricsPersist");
-            t.setDaemon(true);
-            return t;
-        });
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(ServerConfig.threadFactory("MetricsPersist", true));
         this.scheduler.scheduleAtFixedRate(this::persistSnapshot, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        this.scheduler.scheduleAtFixedRate(this::rotateLatency, latencyWindowSeconds, latencyWindowSeconds, TimeUnit.SECONDS);
+        registerSource("latency", this::latencySnapshot);
+        registerSource("throughput", this::throughputSnapshot);
     }
 
     private void onResponse(ResponseEvent e) {
         totalRequests.incrementAndGet();
         totalResponseTimeNanos.addAndGet(e.durationNanos);
-        timestampsMs.add(System.currentTimeMillis());
-
-        long cutoff = System.currentTimeMillis() - 2000L;
-        while (true) {
-            Long head = timestampsMs.peek();
-            if (head == null || head >= cutoff) break;
-            timestampsMs.poll();
-        }
+        recordLatency(e);
+        responses.record(e.timeMillis);
     }
 
     private void persistSnapshot() {
@@ -90,13 +100,103 @@ public class MetricsCollector {
     }
 
     public double getRps() {
+        return responses.perSecond(1_000L, System.currentTimeMillis());
+    }
+
+    // Responses per second averaged over 1s, 10s, 60s and 5m.
+    public Map<String, Object> throughputSnapshot() {
         long now = System.currentTimeMillis();
-        long from = now - 1000L;
-        long count = 0;
-        for (Long t : timestampsMs) {
-            if (t >= from) count++;
+        Map<String, Object> s = new LinkedHashMap<>();
+        s.put("rps1s", responses.perSecond(1_000L, now));
+        s.put("rps10s", responses.perSecond(10_000L, now));
+        s.put("rps60s", responses.perSecond(60_000L, now));
+        s.put("rps5m", responses.perSecond(300_000L, now));
+        return s;
+    }
+
+    // Percentiles over the last one to two windows of LATENCY_WINDOW_SECONDS, overall and per route and status class.
+    public Map<String, Object> latencySnapshot() {
+        Map<String, Object> routes = new TreeMap<>();
+        routeLatency.forEach((route, windows) -> {
+            Map<String, Object> byClass = new LinkedHashMap<>();
+            for (int i = 0; i < STATUS_CLASSES.length; i++) {
+                LatencyWindow w = windows.get(i);
+                if (w != null) byClass.put(STATUS_CLASSES[i], w.summary());
+            }
+            routes.put(route, byClass);
+        });
+
+        Map<String, Object> s = new LinkedHashMap<>();
+        s.put("windowSeconds", latencyWindowSeconds);
+        s.put("all", allLatency.summary());
+        s.put("routes", routes);
+        return s;
+    }
+
+    private void recordLatency(ResponseEvent e) {
+        allLatency.record(e.durationNanos);
+
+        int cls = e.status / 100 - 1;
+        if (cls < 0 || cls >= STATUS_CLASSES.length) return;
+
+        String route = e.route == null ? OTHER_ROUTE : e.route;
+        AtomicReferenceArray<LatencyWindow> windows = routeLatency.get(route);
+        if (windows == null) {
+            if (routeLatency.size() >= MAX_LATENCY_ROUTES) route = OTHER_ROUTE;
+            windows = routeLatency.computeIfAbsent(route, r -> new AtomicReferenceArray<>(STATUS_CLASSES.length));
+        }
+
+        LatencyWindow w = windows.get(cls);
+        if (w == null) {
+            windows.compareAndSet(cls, null, new LatencyWindow());
+            w = windows.get(cls);
         }
-        return (double) count;
+        w.record(e.durationNanos);
+    }
+
+    private void rotateLatency() {
+        try {
+            allLatency.rotate();
+            for (AtomicReferenceArray<LatencyWindow> windows : routeLatency.values()) {
+                for (int i = 0; i < windows.length(); i++) {
+                    LatencyWindow w = windows.get(i);
+                    if (w != null) w.rotate();
+                }
+            }
+        } catch (Throwable t) {
+            System.err.println("Latency window rotation failed: " + t.getMessage());
+        }
+    }
+
+    // The histogram being recorded into and the last full window; reports cover both.
+    private static final class LatencyWindow {
+        private volatile LatencyHistogram current = new LatencyHistogram();
+        private volatile LatencyHistogram previous = new LatencyHistogram();
+
+        void record(long nanos) {
+            current.record(nanos);
+        }
+
+        void rotate() {
+            LatencyHistogram old = previous;
+            previous = current;
+            old.reset();
+            current = old;
+        }
+
+        Map<String, Object> summary() {
+            long[] counts = new long[LatencyHistogram.BUCKETS];
+            long max = Math.max(previous.addTo(counts), current.addTo(counts));
+            return LatencyHistogram.summary(counts, max);
+        }
+    }
+
+    public void registerSource(String name, MetricsSource source) {
+        sources.put(name, source);
+    }
+
+    public Map<String, MetricsSource> getSources() {
+        return sources;
     }
 
     public void shutdown() {
@@ -0,0 +1,8 @@
+package metrics;
+
+import java.util.Map;
+
+@FunctionalInterface
+public interface MetricsSource {
+    Map<String, Object> snapshot();
+}
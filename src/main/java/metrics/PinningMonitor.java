@@ -0,0 +1,74 @@
+package metrics;
+
+import config.ServerConfig;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class PinningMonitor {
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final long FALLBACK_THRESHOLD_MS = 20;
+
+    private static final AtomicBoolean started = new AtomicBoolean(false);
+    private static final AtomicLong pinnedEvents = new AtomicLong(0);
+    private static final ConcurrentHashMap<String, AtomicLong> pinnedSites = new ConcurrentHashMap<>();
+
+    private PinningMonitor() {}
+
+    public static void startIfEnabled() {
+        if (!ServerConfig.getBoolean("VIRTUAL_THREAD_PINNING_REPORT", true)) return;
+        if (!started.compareAndSet(false, true)) return;
+
+        long thresholdMs = ServerConfig.getPositiveLong("VIRTUAL_THREAD_PINNING_THRESHOLD_MS", FALLBACK_THRESHOLD_MS);
+        try {
+            RecordingStream rs = new RecordingStream();
+            rs.enable(PINNED_EVENT).withThreshold(Duration.ofMillis(thresholdMs)).withStackTrace();
+            rs.onEvent(PINNED_EVENT, PinningMonitor::onPinned);
+            rs.startAsync();
+            System.out.println("Virtual thread pinning monitor started, threshold " + thresholdMs + " ms");
+        } catch (Throwable t) {
+            System.err.println("Failed to start pinning monitor: " + t.getMessage());
+        }
+    }
+
+    private static void onPinned(RecordedEvent e) {
+        pinnedEvents.incrementAndGet();
+        String site = pinnedSite(e);
+        pinnedSites.computeIfAbsent(site, k -> new AtomicLong()).incrementAndGet();
+        System.err.println("[PINNED] carrier pinned for " + e.getDuration().toMillis() + " ms at " + site);
+    }
+
+    private static String pinnedSite(RecordedEvent e) {
+        if (e.getStackTrace() == null) return "unknown";
+        RecordedFrame fallback = null;
+        for (RecordedFrame f : e.getStackTrace().getFrames()) {
+            if (!f.isJavaFrame()) continue;
+            if (fallback == null) fallback = f;
+            String type = f.getMethod().getType().getName();
+            if (type.startsWith("java.") || type.startsWith("jdk.") || type.startsWith("sun.")) continue;
+            return format(f);
+        }
+        return fallback == null ? "unknown" : format(fallback);
+    }
+
+    private static String format(RecordedFrame f) {
+        return f.getMethod().getType().getName() + "." + f.getMethod().getName() + ":" + f.getLineNumber();
+    }
+
+    public static long getPinnedEvents() {
+        return pinnedEvents.get();
+    }
+
+    public static Map<String, Long> getPinnedSites() {
+        Map<String, Long> out = new TreeMap<>();
+        pinnedSites.forEach((k, v) -> out.put(k, v.get()));
+        return out;
+    }
+}
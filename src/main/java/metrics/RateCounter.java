@@ -0,0 +1,72 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Counts events into two rings of LongAdder buckets, 100ms and 1s wide, each bucket tagged with the tick it
+ * currently holds. The first event of a new tick to land in a bucket clears it, so memory is constant and
+ * recording allocates nothing. Rates are read from complete buckets only, in O(buckets). An increment that
+ * races the clearing of its bucket can be lost, which a rate can live with.
+ */
+public final class RateCounter {
+    private final Ring fine = new Ring(100, 32);
+    private final Ring coarse = new Ring(1_000, 512);
+
+    public void record(long timeMillis) {
+        fine.add(timeMillis);
+        coarse.add(timeMillis);
+    }
+
+    // Events per second over the windowMs before the current tick: 100ms resolution up to 3s, 1s up to 8 minutes.
+    public double perSecond(long windowMs, long nowMillis) {
+        Ring r = windowMs <= fine.span() ? fine : coarse;
+        long buckets = Math.max(1, Math.min(windowMs / r.widthMs, r.span() / r.widthMs));
+        return r.sum(nowMillis / r.widthMs, buckets) * 1_000.0 / (buckets * r.widthMs);
+    }
+
+    private static final class Ring {
+        final long widthMs;
+        private final LongAdder[] counts;
+        private final AtomicLongArray ticks;
+        private final int mask;
+
+        Ring(long widthMs, int size) {
+            this.widthMs = widthMs;
+            this.counts = new LongAdder[size];
+            this.ticks = new AtomicLongArray(size);
+            this.mask = size - 1;
+            for (int i = 0; i < size; i++) {
+                counts[i] = new LongAdder();
+                ticks.set(i, -1);
+            }
+        }
+
+        // Longest window that never reads the bucket being filled.
+        long span() {
+            return (counts.length - 1) * widthMs;
+        }
+
+        void add(long timeMillis) {
+            long tick = timeMillis / widthMs;
+            int i = (int) (tick & mask);
+            long t = ticks.get(i);
+            if (t != tick) {
+                // older than anything the ring still holds
+                if (t > tick) return;
+                if (ticks.compareAndSet(i, t, tick)) counts[i].reset();
+                else if (ticks.get(i) != tick) return;
+            }
+            counts[i].increment();
+        }
+
+        long sum(long currentTick, long n) {
+            long total = 0;
+            for (long k = currentTick - n; k < currentTick; k++) {
+                int i = (int) (k & mask);
+                if (ticks.get(i) == k) total += counts[i].sum();
+            }
+            return total;
+        }
+    }
+}
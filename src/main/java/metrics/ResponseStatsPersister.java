@@ -1,40 +1,47 @@
 package metrics;
 
 import db.ResponseStatsRepository;
+import events.BatchHandler;
 import events.ResponseEvent;
 import events.EventBus;
+import events.OverflowPolicy;
+import events.SubscriptionOptions;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.function.Consumer;
 
 public class ResponseStatsPersister {
     private static final AtomicBoolean registered = new AtomicBoolean(false);
     private final ResponseStatsRepository repo;
-    private final Consumer<ResponseEvent> handler;
+    private final BatchHandler<ResponseEvent> handler;
 
     public ResponseStatsPersister(ResponseStatsRepository repo) {
         this.repo = repo;
-        this.handler = this::onResponse;
+        this.handler = this::onResponses;
 
         if (registered.compareAndSet(false, true)) {
-            EventBus.getInstance().subscribe(ResponseEvent.class, handler);
+            // a Mongo outage should cost samples, not memory
+            EventBus.getInstance().subscribeBatch(ResponseEvent.class, handler,
+                    SubscriptionOptions.of("response-stats", OverflowPolicy.SAMPLE));
             System.out.println("ResponseStatsPersister subscribed");
         } else {
             System.out.println("ResponseStatsPersister: already subscribed, skipping");
         }
     }
 
-    private void onResponse(ResponseEvent e) {
+    private void onResponses(List<ResponseEvent> events) {
         try {
-            if (repo == null || e == null) return;
-            String method = e.request == null ? "" : e.request.method();
-            String path = e.request == null ? "" : e.request.url();
-            int status = e.response == null ? 0 : e.response.statusCode();
-            double durationMs = e.durationMs();
-            String ts = e.ts == null ? null : e.ts.toString();
-            repo.saveResponseStat(method, path, status, durationMs, ts);
+            if (repo == null) return;
+            List<ResponseStatsRepository.Row> rows = new ArrayList<>(events.size());
+            for (ResponseEvent e : events) {
+                String ts = Instant.ofEpochMilli(e.timeMillis).toString();
+                rows.add(new ResponseStatsRepository.Row(e.method, e.route, e.status, e.durationMs(), ts));
+            }
+            repo.saveResponseStats(rows);
         } catch (Throwable t) {
-            System.err.println("ResponseStatsPersister failed to persist event: " + t.getMessage());
+            System.err.println("ResponseStatsPersister failed to persist " + events.size() + " events: " + t.getMessage());
         }
     }
 
@@ -2,6 +2,8 @@ package metrics;
 
 import events.RequestEvent;
 import events.EventBus;
+import events.OverflowPolicy;
+import events.SubscriptionOptions;
 import server.Statistics;
 
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -17,7 +19,8 @@ public class StatisticsPersister {
         this.handler = this::onRequest;
 
         if (registered.compareAndSet(false, true)) {
-            EventBus.getInstance().subscribe(RequestEvent.class, handler);
+            EventBus.getInstance().subscribe(RequestEvent.class, handler,
+                    SubscriptionOptions.of("request-stats", OverflowPolicy.DROP_NEWEST));
             System.out.println("StatisticsPersister subscribed");
         } else {
             System.out.println("StatisticsPersister: already subscribed, skipping");
@@ -27,8 +30,8 @@ public class StatisticsPersister {
 
     private void onRequest(RequestEvent e) {
         try {
-            if (statistics == null || e == null || e.request == null) return;
-            statistics.logRequest(e.request);
+            if (statistics == null || e == null) return;
+            statistics.logRequest(e.method, e.route, e.timeMillis);
         } catch (Throwable t) {
             System.err.println("StatisticsPersister failed to persist request: " + t.getMessage());
         }
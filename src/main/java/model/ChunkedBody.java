@@ -0,0 +1,21 @@
+package model;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Objects;
+
+public record ChunkedBody(BodyWriter writer) implements StreamBody {
+    @FunctionalInterface
+    public interface BodyWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    public ChunkedBody {
+        Objects.requireNonNull(writer);
+    }
+
+    @Override
+    public long length() {
+        return -1;
+    }
+}
@@ -0,0 +1,11 @@
+package model;
+
+import java.nio.file.Path;
+import java.util.Objects;
+
+public record FileBody(Path path, long offset, long length) implements StreamBody {
+    public FileBody {
+        Objects.requireNonNull(path);
+        if (offset < 0 || length < 0) throw new IllegalArgumentException("Invalid file region " + offset + "+" + length);
+    }
+}
@@ -0,0 +1,69 @@
+package model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public final class HeaderBlock {
+    private final String[] names;
+    private final String[] values;
+    private final byte[] encoded;
+
+    private HeaderBlock(String[] names, String[] values) {
+        this.names = names;
+        this.values = values;
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < names.length; i++) {
+            sb.append(names[i]).append(": ").append(values[i]).append("\r\n");
+        }
+        this.encoded = sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static HeaderBlock of(Map<String, String> headers) {
+        String[] names = new String[headers.size()];
+        String[] values = new String[headers.size()];
+        int i = 0;
+        for (var e : headers.entrySet()) {
+            names[i] = e.getKey();
+            values[i] = e.getValue();
+            i++;
+        }
+        return new HeaderBlock(names, values);
+    }
+
+    // Shared, must not be modified by callers.
+    public byte[] encoded() {
+        return encoded;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public String name(int i) {
+        return names[i];
+    }
+
+    public String value(int i) {
+        return values[i];
+    }
+
+    public String get(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equalsIgnoreCase(name)) return values[i];
+        }
+        return null;
+    }
+
+    public boolean contains(String name) {
+        return get(name) != null;
+    }
+
+    public Map<String, String> toMap() {
+        Map<String, String> m = new LinkedHashMap<>();
+        for (int i = 0; i < names.length; i++) m.put(names[i], values[i]);
+        return Collections.unmodifiableMap(m);
+    }
+}
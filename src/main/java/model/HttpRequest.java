@@ -1,30 +1,194 @@
 package model;
 
+import http.HttpUtils;
+import http.LazyHeaders;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
 
-public record HttpRequest(String method, String url, String version, Map<String, String> headers, String body) {
+/*
+ * The body is kept as the bytes read off the wire, or in a temp file when it was too large to hold in memory;
+ * bodyStream()/bodyChannel() read either without loading it. The String body and the query/form/json/cookie
+ * views are decoded on first access and memoized; the views are read-only, copy them to modify.
+ * A request is handled by one thread at a time, so the memo fields are not synchronized.
+ */
+public final class HttpRequest {
+    private static final byte[] NO_BODY = new byte[0];
+
+    private final String method;
+    private final String url;
+    private final String version;
+    private final Map<String, String> headers;
+    private byte[] bodyBytes;
+    private final Path bodyFile;
+    private final long bodyLength;
+
+    private String body;
+    private Map<String, Object> query;
+    private Map<String, Object> form;
+    private Map<String, Object> json;
+    private Map<String, String> cookies;
+    private String route;
+
     public HttpRequest(String method, String url) {
-        this(method, url, "HTTP/1.1", new LinkedHashMap<>(), null);
+        this(method, url, "HTTP/1.1", new LinkedHashMap<>(), (byte[]) null);
     }
 
     public HttpRequest(String method, String url, String version, Map<String, String> headers, String body) {
+        this(method, url, version, headers, body == null ? null : body.getBytes(StandardCharsets.UTF_8));
+        this.body = body;
+    }
+
+    // bodyBytes is taken over without a copy; null means the request had no body at all
+    public HttpRequest(String method, String url, String version, Map<String, String> headers, byte[] bodyBytes) {
         this.method = Objects.requireNonNull(method);
         this.url = Objects.requireNonNull(url);
         this.version = version == null ? "HTTP/1.1" : version;
-        this.headers = headers == null ? new LinkedHashMap<>() : new LinkedHashMap<>(headers);
-        this.body = body;
+        // LazyHeaders is already read-only; copying it would decode every value
+        this.headers = headers == null ? new LinkedHashMap<>()
+                : headers instanceof LazyHeaders ? headers : new LinkedHashMap<>(headers);
+        this.bodyBytes = bodyBytes;
+        this.bodyFile = null;
+        this.bodyLength = bodyBytes == null ? -1 : bodyBytes.length;
+    }
+
+    // A body spilled to disk by the decoder; the file is deleted by release().
+    public HttpRequest(String method, String url, String version, Map<String, String> headers, Path bodyFile, long bodyLength) {
+        this.method = Objects.requireNonNull(method);
+        this.url = Objects.requireNonNull(url);
+        this.version = version == null ? "HTTP/1.1" : version;
+        this.headers = headers == null ? new LinkedHashMap<>()
+                : headers instanceof LazyHeaders ? headers : new LinkedHashMap<>(headers);
+        this.bodyFile = Objects.requireNonNull(bodyFile);
+        this.bodyLength = bodyLength;
+    }
+
+    public String method() {
+        return method;
+    }
+
+    public String url() {
+        return url;
+    }
+
+    public String version() {
+        return version;
     }
 
-    @Override
     public Map<String, String> headers() {
-        return Collections.unmodifiableMap(headers);
+        return headers instanceof LazyHeaders ? headers : Collections.unmodifiableMap(headers);
+    }
+
+    public boolean hasBody() {
+        return bodyLength >= 0;
+    }
+
+    // -1 when the request had no body
+    public long bodyLength() {
+        return bodyLength;
+    }
+
+    public InputStream bodyStream() throws IOException {
+        if (bodyFile != null && bodyBytes == null) return Files.newInputStream(bodyFile);
+        return new ByteArrayInputStream(bodyBytes());
+    }
+
+    public ReadableByteChannel bodyChannel() throws IOException {
+        if (bodyFile != null && bodyBytes == null) return FileChannel.open(bodyFile);
+        return Channels.newChannel(new ByteArrayInputStream(bodyBytes()));
+    }
+
+    // Shared, must not be modified by callers. A spilled body is read into memory here; prefer bodyStream().
+    public byte[] bodyBytes() {
+        if (bodyBytes == null && bodyFile != null) {
+            try {
+                bodyBytes = Files.readAllBytes(bodyFile);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read request body", e);
+            }
+        }
+        return bodyBytes == null ? NO_BODY : bodyBytes;
+    }
+
+    public String body() {
+        if (body == null && hasBody()) {
+            byte[] bytes = bodyBytes();
+            body = bytes.length == 0 ? "" : new String(bytes, StandardCharsets.UTF_8);
+        }
+        return body;
+    }
+
+    // Pattern of the route that matched, set by the router so metrics group by route and not by URL;
+    // null until the request is routed, and when no route matched.
+    public String route() {
+        return route;
+    }
+
+    public void setRoute(String route) {
+        this.route = route;
+    }
+
+    // Deletes the spill file, if any; called by the server once the response has been written.
+    public void release() {
+        if (bodyFile == null) return;
+        try {
+            Files.deleteIfExists(bodyFile);
+        } catch (IOException e) {
+            System.err.println("Failed to delete request body spill " + bodyFile + ": " + e.getMessage());
+        }
+    }
+
+    public Map<String, Object> query() {
+        if (query == null) query = Collections.unmodifiableMap(HttpUtils.parseQueryToContext(url));
+        return query;
+    }
+
+    public Map<String, Object> form() {
+        if (form == null) form = Collections.unmodifiableMap(HttpUtils.parseFormUrlEncoded(body()));
+        return form;
+    }
+
+    public Map<String, Object> json() {
+        if (json == null) json = Collections.unmodifiableMap(HttpUtils.tryParseJsonFlat(body()));
+        return json;
+    }
+
+    public Map<String, String> cookies() {
+        if (cookies == null) cookies = Collections.unmodifiableMap(parseCookies(HttpUtils.getHeaderIgnoreCase(headers, "Cookie")));
+        return cookies;
+    }
+
+    private static Map<String, String> parseCookies(String header) {
+        if (header == null || header.isBlank()) return Map.of();
+        Map<String, String> out = new HashMap<>();
+        for (String pair : header.split(";")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            String name = pair.substring(0, eq).trim();
+            String value = pair.substring(eq + 1).trim();
+            if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                value = value.substring(1, value.length() - 1);
+            }
+            if (!name.isEmpty()) out.putIfAbsent(name, value);
+        }
+        return out;
     }
 
     @Override
     public String toString() {
-        return method + " " + url + " " + version + " headers=" + headers.size() + " bodyLength=" + (body == null ? 0 : body.length());
+        return method + " " + url + " " + version + " headers=" + headers.size() + " bodyLength=" + Math.max(0, bodyLength);
     }
 }
@@ -4,19 +4,42 @@ import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.Map;
 
-public record HttpResponse(int statusCode, String statusMessage, Map<String, String> headers, String body, byte[] bodyBytes) {
+public record HttpResponse(int statusCode, String statusMessage, Map<String, String> headers, String body, byte[] bodyBytes,
+                           StreamBody streamBody, HeaderBlock headerBlock) {
     public HttpResponse(int statusCode, String statusMessage, Map<String, String> headers, String body, byte[] bodyBytes) {
+        this(statusCode, statusMessage, headers, body, bodyBytes, null, null);
+    }
+
+    public HttpResponse(int statusCode, String statusMessage, Map<String, String> headers, String body, byte[] bodyBytes,
+                        StreamBody streamBody, HeaderBlock headerBlock) {
         this.statusCode = statusCode;
         this.statusMessage = statusMessage;
         this.headers = headers == null ? Collections.emptyMap() : Collections.unmodifiableMap(headers);
         this.body = body;
         this.bodyBytes = bodyBytes;
+        this.streamBody = streamBody;
+        this.headerBlock = headerBlock;
+    }
+
+    // Looks in the pre-encoded block first, then in the per-response headers.
+    public String header(String name) {
+        if (headerBlock != null) {
+            String v = headerBlock.get(name);
+            if (v != null) return v;
+        }
+        for (var e : headers.entrySet()) {
+            if (e.getKey().equalsIgnoreCase(name)) return e.getValue();
+        }
+        return null;
     }
 
     @Override
     public String toString() {
         StringBuilder response = new StringBuilder();
         response.append("HTTP/1.1 ").append(statusCode).append(" ").append(statusMessage).append("\r\n");
+        if (headerBlock != null) {
+            response.append(new String(headerBlock.encoded(), StandardCharsets.UTF_8));
+        }
         for (var entry : headers.entrySet()) {
             response.append(entry.getKey()).append(": ").append(entry.getValue()).append("\r\n");
         }
@@ -26,6 +49,11 @@ public record HttpResponse(int statusCode, String statusMessage, Map<String, Str
             response.append(body);
         } else if (bodyBytes != null) {
             response.append(new String(bodyBytes, StandardCharsets.UTF_8));
+        } else if (streamBody instanceof FileBody f) {
+            response.append("[file ").append(f.path()).append(" offset=").append(f.offset())
+                    .append(" length=").append(f.length()).append("]");
+        } else if (streamBody instanceof ChunkedBody) {
+            response.append("[chunked stream]");
         }
 
         return response.toString();
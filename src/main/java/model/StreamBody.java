@@ -0,0 +1,6 @@
+package model;
+
+public sealed interface StreamBody permits FileBody, ChunkedBody {
+    // -1 when the length is not known up front
+    long length();
+}
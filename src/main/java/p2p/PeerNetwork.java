@@ -1,5 +1,6 @@
 package p2p;
 
+import config.ServerConfig;
 import db.PeersRepository;
 import server.Statistics;
 
@@ -19,7 +20,8 @@ public class PeerNetwork {
 
     private volatile PeerInfo selfInfo;
 
-    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(ServerConfig.threadFactory("PeerSync", false));
     private final int syncIntervalSeconds;
     private final int lastN;
 
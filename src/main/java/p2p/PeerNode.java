@@ -6,6 +6,7 @@ import db.RequestsRepository;
 import db.PeersRepository;
 import db.MetricsRepository;
 import db.ResponseStatsRepository;
+import events.EventBus;
 import mediator.ConcreteServerMediator;
 import metrics.StatisticsPersister;
 import model.HttpResponse;
@@ -110,6 +111,8 @@ public class PeerNode {
         this.peerNetwork.setSelfInfo(selfInfo);
 
         this.metricsCollector = new MetricsCollector(metricsRepo);
+        this.metricsCollector.registerSource("connectionTimeouts", server::connectionTimeouts);
+        this.metricsCollector.registerSource("eventBus", EventBus.getInstance()::snapshot);
         new Logger();
 
         this.responseStatsPersister = new ResponseStatsPersister(responseStatsRepo);
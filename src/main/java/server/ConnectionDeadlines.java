@@ -0,0 +1,204 @@
+package server;
+
+import config.ServerConfig;
+import http.ReadProgress;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Hashed timing wheel with one timer per open connection. A timer holds the deadline of the phase the
+ * connection is in (idle between requests, reading the head, reading the body) and a deadline for the whole
+ * request, and any thread moves them with plain volatile writes. Only the thread calling advance() touches
+ * the wheel itself: a timer sits in the slot of the deadline it had when it was placed, and when that slot
+ * comes round it is either expired or placed again. Timers whose deadline moved before their slot, and
+ * closed ones, are handed over through a queue.
+ */
+final class ConnectionDeadlines {
+    enum Kind { HEADER, BODY, IDLE, TOTAL }
+
+    static final long TICK_MS = 100;
+    private static final int WHEEL_SIZE = 512;
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private final Timer[] wheel = new Timer[WHEEL_SIZE];
+    private final Queue<Timer> handoff = new ConcurrentLinkedQueue<>();
+    private final LongAdder[] expired = new LongAdder[Kind.values().length];
+    private final long headerMs;
+    private final long bodyMs;
+    private final long idleMs;
+    private final long totalMs;
+
+    private long tick = -1;
+    private ScheduledExecutorService clock;
+
+    ConnectionDeadlines() {
+        this(ServerConfig.HEADER_READ_TIMEOUT_MS, ServerConfig.BODY_READ_TIMEOUT_MS,
+                ServerConfig.KEEP_ALIVE_TIMEOUT_MS, ServerConfig.REQUEST_TIMEOUT_MS);
+    }
+
+    ConnectionDeadlines(long headerMs, long bodyMs, long idleMs, long totalMs) {
+        this.headerMs = headerMs;
+        this.bodyMs = bodyMs;
+        this.idleMs = idleMs;
+        this.totalMs = totalMs;
+        for (int i = 0; i < expired.length; i++) expired[i] = new LongAdder();
+    }
+
+    // onExpire runs on the thread driving the wheel and should only close the connection.
+    Timer open(Runnable onExpire) {
+        Timer t = new Timer(onExpire);
+        t.reading(ReadProgress.Phase.IDLE);
+        return t;
+    }
+
+    // For the blocking engine; the NIO engine calls advance() from its selector loop instead.
+    synchronized void start(String threadName) {
+        if (clock != null) return;
+        clock = Executors.newSingleThreadScheduledExecutor(ServerConfig.threadFactory(threadName, true));
+        clock.scheduleAtFixedRate(() -> advance(System.currentTimeMillis()), TICK_MS, TICK_MS, TimeUnit.MILLISECONDS);
+    }
+
+    synchronized void stop() {
+        if (clock == null) return;
+        clock.shutdownNow();
+        clock = null;
+    }
+
+    void advance(long now) {
+        long target = now / TICK_MS;
+        if (tick < 0) tick = target - 1;
+
+        Timer t;
+        while ((t = handoff.poll()) != null) {
+            unlink(t);
+            if (!t.closed) place(t, now, target);
+        }
+
+        for (long k = Math.max(tick + 1, target - WHEEL_SIZE + 1); k <= target; k++) {
+            int slot = (int) (k & (WHEEL_SIZE - 1));
+            Timer n = wheel[slot];
+            wheel[slot] = null;
+            while (n != null) {
+                Timer next = n.next;
+                n.prev = n.next = null;
+                n.slot = -1;
+                n.bucketTime = NO_DEADLINE;
+                if (!n.closed) place(n, now, target);
+                n = next;
+            }
+        }
+        tick = target;
+    }
+
+    Map<String, Object> snapshot() {
+        Map<String, Object> s = new LinkedHashMap<>();
+        s.put("headerTimeouts", expired[Kind.HEADER.ordinal()].sum());
+        s.put("bodyTimeouts", expired[Kind.BODY.ordinal()].sum());
+        s.put("idleTimeouts", expired[Kind.IDLE.ordinal()].sum());
+        s.put("requestTimeouts", expired[Kind.TOTAL.ordinal()].sum());
+        return s;
+    }
+
+    private void place(Timer t, long now, long nowTick) {
+        long phase = t.phaseDeadline;
+        long total = t.totalDeadline;
+        long deadline = Math.min(phase, total);
+        if (deadline <= now) {
+            expire(t, total <= phase ? Kind.TOTAL : t.phaseKind);
+            return;
+        }
+
+        long at = deadline == NO_DEADLINE ? NO_DEADLINE : (deadline + TICK_MS - 1) / TICK_MS;
+        at = Math.min(Math.max(at, nowTick + 1), nowTick + WHEEL_SIZE - 1);
+        int slot = (int) (at & (WHEEL_SIZE - 1));
+        t.slot = slot;
+        t.next = wheel[slot];
+        if (t.next != null) t.next.prev = t;
+        wheel[slot] = t;
+        t.bucketTime = at * TICK_MS;
+    }
+
+    private void unlink(Timer t) {
+        if (t.slot < 0) return;
+        if (t.prev != null) t.prev.next = t.next;
+        else wheel[t.slot] = t.next;
+        if (t.next != null) t.next.prev = t.prev;
+        t.prev = t.next = null;
+        t.slot = -1;
+        t.bucketTime = NO_DEADLINE;
+    }
+
+    private void expire(Timer t, Kind kind) {
+        t.closed = true;
+        t.firedBy = kind;
+        expired[kind.ordinal()].increment();
+        try {
+            t.onExpire.run();
+        } catch (RuntimeException e) {
+            System.err.println("Failed to close timed out connection: " + e.getMessage());
+        }
+    }
+
+    final class Timer implements ReadProgress {
+        private final Runnable onExpire;
+        private volatile Kind phaseKind;
+        private volatile long phaseDeadline = NO_DEADLINE;
+        private volatile long totalDeadline = NO_DEADLINE;
+        private volatile long bucketTime = NO_DEADLINE;
+        private volatile boolean closed;
+        private volatile Kind firedBy;
+
+        // owned by the thread driving the wheel
+        private Timer prev;
+        private Timer next;
+        private int slot = -1;
+
+        private Timer(Runnable onExpire) {
+            this.onExpire = onExpire;
+        }
+
+        @Override
+        public void reading(Phase phase) {
+            long now = System.currentTimeMillis();
+            switch (phase) {
+                case IDLE -> set(Kind.IDLE, now + idleMs, NO_DEADLINE);
+                case HEADER -> set(Kind.HEADER, now + headerMs, requestDeadline(now));
+                case BODY -> set(Kind.BODY, now + bodyMs, requestDeadline(now));
+            }
+        }
+
+        // The request is in; only the whole-request deadline applies while it is handled and written back.
+        void responding() {
+            set(null, NO_DEADLINE, requestDeadline(System.currentTimeMillis()));
+        }
+
+        void close() {
+            if (closed) return;
+            closed = true;
+            handoff.offer(this);
+        }
+
+        boolean expired() {
+            return firedBy != null;
+        }
+
+        private long requestDeadline(long now) {
+            long t = totalDeadline;
+            return t == NO_DEADLINE ? now + totalMs : t;
+        }
+
+        private void set(Kind kind, long deadline, long total) {
+            phaseKind = kind;
+            phaseDeadline = deadline;
+            totalDeadline = total;
+            if (Math.min(deadline, total) < bucketTime) handoff.offer(this);
+        }
+    }
+}
@@ -59,7 +59,7 @@ public class ContactController implements IController {
     private HttpResponse handleDelete(HttpRequest req) {
         String id = null;
 
-        Map<String, Object> qctx = parseQueryToContext(req);
+        Map<String, Object> qctx = req.query();
         if (qctx.containsKey("id")) id = safeToString(qctx.get("id"));
 
         if ((id == null || id.isBlank())) {
@@ -67,9 +67,8 @@ public class ContactController implements IController {
             id = req.headers().getOrDefault("X-Id", req.headers().get("x-id"));
         }
 
-        String rawBody = req.body() == null ? "" : req.body().trim();
-        if ((id == null || id.isBlank()) && !rawBody.isEmpty()) {
-            Map<String, Object> j = tryParseJsonFlat(rawBody);
+        if ((id == null || id.isBlank()) && req.hasBody() && !req.body().isBlank()) {
+            Map<String, Object> j = req.json();
             if (j.containsKey("id")) id = safeToString(j.get("id"));
         }
 
@@ -87,15 +86,9 @@ public class ContactController implements IController {
         String adminHeader = getHeaderIgnoreCase(req.headers(), "X-Admin");
         boolean admin = "true".equalsIgnoreCase(adminHeader);
 
-        String rawUrl = req.url();
-        if (!admin && rawUrl != null) {
-            int q = rawUrl.indexOf('?');
-            if (q >= 0) {
-                String qs = rawUrl.substring(q + 1);
-                Map<String, Object> ctx = parseQueryToContext("?" + qs);
-                Object a = ctx.get("admin");
-                if (a != null && (a.toString().equals("1") || a.toString().equalsIgnoreCase("true"))) admin = true;
-            }
+        if (!admin) {
+            Object a = qctx.get("admin");
+            if (a != null && (a.toString().equals("1") || a.toString().equalsIgnoreCase("true"))) admin = true;
         }
 
         if (!admin) {
@@ -112,17 +105,11 @@ public class ContactController implements IController {
     }
 
     private HttpResponse processCreateOrUpdate(HttpRequest req, boolean isPut) {
-        String rawBody = req.body() == null ? "" : req.body();
-        Map<String, Object> ctx;
-
         String contentType = getHeaderIgnoreCase(req.headers(), "Content-Type");
         boolean isJson = contentType != null && contentType.toLowerCase().contains("application/json");
 
-        if (isJson) {
-            ctx = tryParseJsonFlat(rawBody);
-        } else {
-            ctx = parseFormUrlEncoded(rawBody);
-        }
+        // copied: the template context gets extra keys below
+        Map<String, Object> ctx = new HashMap<>(isJson ? req.json() : req.form());
 
         String id = safeToString(ctx.get("id")).trim();
         String name = safeToString(ctx.get("name")).trim();
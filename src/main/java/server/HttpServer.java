@@ -1,14 +1,19 @@
 package server;
 
+import config.ServerConfig;
 import mediator.ServerMediator;
+import metrics.PinningMonitor;
 import model.HttpRequest;
 import model.HttpResponse;
 import state.IServerState;
 import state.InitializingState;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
-import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -21,6 +26,8 @@ public class HttpServer {
     private Thread serverThread;
     private ServerSocket serverSocket;
     private ExecutorService executorService;
+    private volatile NioServerEngine nioEngine;
+    private final ConnectionDeadlines deadlines = new ConnectionDeadlines();
 
     public HttpServer(int port, ServerMediator mediator) {
         this.port = port;
@@ -28,7 +35,7 @@ public class HttpServer {
         this.mediator = mediator;
     }
 
-    public synchronized void SetState(IServerState newState) {
+    public void SetState(IServerState newState) {
         this.state = newState;
     }
 
@@ -36,20 +43,43 @@ public class HttpServer {
         state.Start(this);
         running = true;
 
-        executorService = Executors.newFixedThreadPool(10);
+        if (ServerConfig.isVirtualThreads()) {
+            executorService = Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name("HttpWorker-" + port + "-", 0).factory());
+            PinningMonitor.startIfEnabled();
+        } else {
+            executorService = Executors.newFixedThreadPool(ServerConfig.WORKER_THREADS);
+        }
 
-        serverThread = new Thread(this::listen, "ServerThread-" + port);
+        if (ServerConfig.isNioEngine()) {
+            serverThread = new Thread(this::listenNio, "NioSelector-" + port);
+        } else {
+            deadlines.start("ConnectionDeadlines-" + port);
+            serverThread = new Thread(this::listen, "ServerThread-" + port);
+        }
         serverThread.start();
     }
 
+    private void listenNio() {
+        try {
+            nioEngine = new NioServerEngine(this, port, executorService);
+            nioEngine.run();
+        } catch (IOException e) {
+            System.err.println("Failed to start server on port " + port + ": " + e.getMessage());
+        } finally {
+            System.out.println("Server listener on port " + port + " exited.");
+        }
+    }
+
     private void listen() {
-        try (ServerSocket serverSocket = new ServerSocket(port)) {
-            this.serverSocket = serverSocket;
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            serverChannel.bind(new InetSocketAddress(port));
+            this.serverSocket = serverChannel.socket();
             System.out.println("Listening for connections on port " + port + "...");
             while (running) {
                 try {
-                    Socket clientSocket = serverSocket.accept();
-                    executorService.submit(new HttpServerWorker(clientSocket, this));
+                    SocketChannel clientChannel = serverChannel.accept();
+                    executorService.submit(new HttpServerWorker(clientChannel.socket(), this));
                 } catch (IOException e) {
                     if (running)
                         System.err.println("Accept error on port " + port + ": " + e.getMessage());
@@ -75,6 +105,10 @@ public class HttpServer {
             System.err.println("Error closing server socket: " + e.getMessage());
         }
 
+        NioServerEngine engine = nioEngine;
+        if (engine != null) engine.close();
+        deadlines.stop();
+
         if (executorService != null) {
             executorService.shutdown();
             try {
@@ -99,6 +133,20 @@ public class HttpServer {
         return state.HandleRequest(this, req);
     }
 
+    public long maxBodyBytes(String method, String url) {
+        ServerMediator m = mediator;
+        return m == null ? ServerConfig.MAX_REQUEST_BODY_BYTES : m.maxBodyBytes(method, url);
+    }
+
+    ConnectionDeadlines deadlines() {
+        return deadlines;
+    }
+
+    // Connections closed for missing each deadline, for /metrics.
+    public Map<String, Object> connectionTimeouts() {
+        return deadlines.snapshot();
+    }
+
     public int getPort() {
         return port;
     }
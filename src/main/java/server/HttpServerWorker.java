@@ -1,79 +1,37 @@
 package server;
 
+import config.ServerConfig;
 import factory.ErrorResponseCreator;
+import http.BodyTooLargeException;
+import http.HttpParseException;
 import http.HttpRequestParser;
 import http.HttpResponseSerializer;
+import http.ReadProgress;
+import http.ResponseWriter;
+import model.ChunkedBody;
+import model.FileBody;
 import model.HttpRequest;
 import model.HttpResponse;
-import events.EventBus;
-import events.RequestEvent;
-import events.ResponseEvent;
-import io.github.cdimascio.dotenv.Dotenv;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
-import java.net.SocketTimeoutException;
-import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
-import java.util.Map;
-
-import static http.HttpUtils.getHeaderIgnoreCase;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class HttpServerWorker implements Runnable {
+    private static final int MAX_PIPELINE_BATCH = 16;
+
     private final Socket clientSocket;
     private final HttpServer server;
 
-    private static final int FALLBACK_KEEP_ALIVE_TIMEOUT_MS = 10_000;
-    private static final int FALLBACK_MAX_REQUESTS = 100;
-
-    private static final String ENV_KEEP_ALIVE_MS = "KEEP_ALIVE_TIMEOUT_MS";
-    private static final String ENV_MAX_REQUESTS = "MAX_REQUESTS_PER_CONNECTION";
-
-    private static final int DEFAULT_KEEP_ALIVE_TIMEOUT_MS;
-    private static final int DEFAULT_MAX_REQUESTS;
-
-    static {
-        int keepAlive = FALLBACK_KEEP_ALIVE_TIMEOUT_MS;
-        int maxReq = FALLBACK_MAX_REQUESTS;
-
-        try {
-            Dotenv dotenv = Dotenv.configure().ignoreIfMissing().load();
-            String ka = dotenv.get(ENV_KEEP_ALIVE_MS);
-            String mr = dotenv.get(ENV_MAX_REQUESTS);
-
-            if (ka != null && !ka.isBlank()) {
-                try {
-                    int parsed = Integer.parseInt(ka.trim());
-                    if (parsed > 0) keepAlive = parsed;
-                    else System.err.println("Invalid " + ENV_KEEP_ALIVE_MS + " , using fallback " + FALLBACK_KEEP_ALIVE_TIMEOUT_MS);
-                } catch (NumberFormatException nfe) {
-                    System.err.println("Failed to parse " + ENV_KEEP_ALIVE_MS + ": " + nfe.getMessage() + " — using fallback " + FALLBACK_KEEP_ALIVE_TIMEOUT_MS);
-                }
-            } else {
-                System.out.println(ENV_KEEP_ALIVE_MS + " not set, using default " + FALLBACK_KEEP_ALIVE_TIMEOUT_MS);
-            }
-
-            if (mr != null && !mr.isBlank()) {
-                try {
-                    int parsed = Integer.parseInt(mr.trim());
-                    if (parsed > 0) maxReq = parsed;
-                    else System.err.println("Invalid " + ENV_MAX_REQUESTS + ", using fallback " + FALLBACK_MAX_REQUESTS);
-                } catch (NumberFormatException nfe) {
-                    System.err.println("Failed to parse " + ENV_MAX_REQUESTS + ": " + nfe.getMessage() + " — using fallback " + FALLBACK_MAX_REQUESTS);
-                }
-            } else {
-                System.out.println(ENV_MAX_REQUESTS + " not set, using default " + FALLBACK_MAX_REQUESTS);
-            }
-        } catch (Throwable t) {
-            System.err.println("Failed to load .env for HttpServerWorker: " + t.getMessage() + " — using fallbacks");
-        }
-
-        DEFAULT_KEEP_ALIVE_TIMEOUT_MS = keepAlive;
-        DEFAULT_MAX_REQUESTS = maxReq;
-    }
-
     public HttpServerWorker(Socket clientSocket, HttpServer server) {
         this.clientSocket = clientSocket;
         this.server = server;
@@ -82,140 +40,157 @@ public class HttpServerWorker implements Runnable {
     @Override
     public void run() {
         int requestsHandled = 0;
-        int keepAliveTimeout = DEFAULT_KEEP_ALIVE_TIMEOUT_MS;
-        int maxRequests = DEFAULT_MAX_REQUESTS;
+        ConnectionDeadlines.Timer timer = server.deadlines().open(this::closeSocket);
+        int keepAliveTimeout = ServerConfig.KEEP_ALIVE_TIMEOUT_MS;
+        int maxRequests = ServerConfig.MAX_REQUESTS_PER_CONNECTION;
+        ResponseWriter writer = new ResponseWriter();
+        HttpRequestParser parser = null;
 
         try (InputStream in = clientSocket.getInputStream();
              OutputStream out = clientSocket.getOutputStream()) {
 
-            clientSocket.setSoTimeout(keepAliveTimeout);
+            parser = new HttpRequestParser(in, out, server::maxBodyBytes, timer);
+            WritableByteChannel channel = clientSocket.getChannel() != null
+                    ? clientSocket.getChannel()
+                    : Channels.newChannel(out);
+            List<HttpRequest> batch = new ArrayList<>();
 
             while (requestsHandled < maxRequests && !clientSocket.isClosed()) {
-                HttpRequest request;
+                batch.clear();
+                boolean badRequest = false;
+                boolean tooLarge = false;
                 try {
-                    request = HttpRequestParser.parse(in);
-                } catch (SocketTimeoutException ste) {
-                    break;
-                }
-
-                if (request == null) {
-                    break;
-                }
-
-                requestsHandled++;
-
-                EventBus bus = EventBus.getInstance();
-
-                try {
-                    bus.publish(new RequestEvent(request));
-                } catch (Throwable t) {
-                    System.err.println("EventBus publish Request failed: " + t.getMessage());
-                }
-
-                long start = System.nanoTime();
-                HttpResponse response;
-                try {
-                    response = server.HandleRequest(request);
-                } catch (Throwable t) {
-                    ErrorResponseCreator err = new ErrorResponseCreator();
-                    response = err.createResponse(500, "<h1>Internal Server Error</h1>");
+                    HttpRequest request = parser.parse();
+                    if (request == null) break;
+                    batch.add(request);
+
+                    // Pick up whatever the client already pipelined behind the first request.
+                    while (batch.size() < MAX_PIPELINE_BATCH
+                            && RequestDispatcher.shouldKeepAlive(request, requestsHandled + batch.size(), maxRequests)
+                            && (request = parser.parseBuffered()) != null) {
+                        batch.add(request);
+                    }
+                } catch (BodyTooLargeException e) {
+                    badRequest = true;
+                    tooLarge = true;
+                } catch (HttpParseException e) {
+                    badRequest = true;
                 }
-                long duration = Math.max(0L, System.nanoTime() - start);
 
-                if (response == null) {
-                    ErrorResponseCreator err = new ErrorResponseCreator();
-                    response = err.createResponse(500, "<h1>Internal Server Error</h1>");
-                }
+                timer.responding();
+                List<HttpResponse> responses = dispatchAll(batch);
 
+                boolean keepAlive = true;
                 try {
-                    bus.publish(new ResponseEvent(request, response, duration));
-                } catch (Throwable t) {
-                    System.err.println("EventBus publish Response failed: " + t.getMessage());
-                }
-
-                String reqConnHeader = getHeaderIgnoreCase(request.headers(), "Connection");
-                String reqVersion = request.version() == null ? "HTTP/1.1" : request.version();
-
-                boolean clientWantsClose = false;
-                boolean clientWantsKeepAlive = false;
-
-                if (reqConnHeader != null) {
-                    if (reqConnHeader.equalsIgnoreCase("close")) clientWantsClose = true;
-                    if (reqConnHeader.equalsIgnoreCase("keep-alive")) clientWantsKeepAlive = true;
-                }
-
-                boolean defaultPersistent = reqVersion.equalsIgnoreCase("HTTP/1.1");
-
-                boolean willKeepAlive;
-                if (clientWantsClose) {
-                    willKeepAlive = false;
-                } else if (clientWantsKeepAlive) {
-                    willKeepAlive = true;
-                } else {
-                    willKeepAlive = defaultPersistent;
-                }
-
-                if (requestsHandled >= maxRequests) {
-                    willKeepAlive = false;
-                }
-
-                Map<String, String> newHeaders = new HashMap<>();
-                if (response.headers() != null) {
-                    newHeaders.putAll(response.headers());
-                }
-
-                if (willKeepAlive) {
-                    newHeaders.put("Connection", "keep-alive");
-                    int timeoutSeconds = keepAliveTimeout / 1000;
-                    newHeaders.put("Keep-Alive", "timeout=" + timeoutSeconds + ", max=" + (maxRequests - requestsHandled));
-                } else {
-                    newHeaders.put("Connection", "close");
-                }
-
-                if (!newHeaders.containsKey("Content-Length")) {
-                    int len;
-                    if (response.bodyBytes() != null) {
-                        len = response.bodyBytes().length;
-                    } else if (response.body() != null) {
-                        len = response.body().getBytes(StandardCharsets.UTF_8).length;
-                    } else {
-                        len = 0;
+                    for (int i = 0; i < batch.size(); i++) {
+                        HttpRequest request = batch.get(i);
+                        HttpResponse response = responses.get(i);
+                        requestsHandled++;
+
+                        if ("HTTP/1.0".equalsIgnoreCase(request.version())) {
+                            response = RequestDispatcher.bufferStreamBody(response);
+                        }
+                        boolean willKeepAlive = RequestDispatcher.shouldKeepAlive(request, requestsHandled, maxRequests);
+                        writer.add(response, willKeepAlive, keepAliveTimeout, maxRequests - requestsHandled);
+                        if (response.streamBody() != null) {
+                            writer.flush(channel);
+                            writeStreamBody(response, channel, out);
+                        }
+
+                        if (!willKeepAlive) {
+                            keepAlive = false;
+                            break;
+                        }
                     }
-                    newHeaders.put("Content-Length", String.valueOf(len));
-                }
 
-                HttpResponse responseToSend = new HttpResponse(
-                        response.statusCode(),
-                        response.statusMessage(),
-                        newHeaders,
-                        response.body(),
-                        response.bodyBytes()
-                );
+                    if (badRequest && keepAlive) {
+                        HttpResponse bad = tooLarge
+                                ? new ErrorResponseCreator().createResponse(413, "<h1>Payload Too Large</h1>")
+                                : new ErrorResponseCreator().createResponse(400, "<h1>Bad Request</h1>");
+                        writer.add(bad, false, keepAliveTimeout, 0);
+                    }
 
-                try {
-                    byte[] respBytes = HttpResponseSerializer.serialize(responseToSend);
-                    out.write(respBytes);
-                    out.flush();
+                    writer.flush(channel);
+                    // The parser only reports a phase when it has to read, so the next request may already be
+                    // buffered; start it with a fresh whole-request deadline.
+                    timer.reading(ReadProgress.Phase.IDLE);
                 } catch (IOException e) {
-                    System.err.println("Failed to serialize response: " + e.getMessage());
+                    if (!timer.expired()) System.err.println("Failed to serialize response: " + e.getMessage());
                     break;
+                } finally {
+                    for (HttpRequest request : batch) request.release();
                 }
 
-
-                if (!willKeepAlive) {
+                if (!keepAlive || badRequest) {
                     break;
                 }
-
-                clientSocket.setSoTimeout(keepAliveTimeout);
             }
-        } catch (SocketTimeoutException ste) {
-            // Таймаут очікування наступного запиту — закриваємо з'єднання
         } catch (IOException e) {
-            System.err.println("Error handling client: " + e.getMessage());
+            // a timed out connection is closed under the worker, which then fails here
+            if (!timer.expired()) System.err.println("Error handling client: " + e.getMessage());
         } finally {
+            timer.close();
+            writer.close();
+            if (parser != null) parser.close();
             try {
                 if (!clientSocket.isClosed()) clientSocket.close();
             } catch (IOException ignored) {}
         }
     }
-}
\ No newline at end of file
+
+    private void closeSocket() {
+        try {
+            clientSocket.close();
+        } catch (IOException ignored) {}
+    }
+
+    private List<HttpResponse> dispatchAll(List<HttpRequest> batch) {
+        if (batch.size() > 1 && ServerConfig.PIPELINE_PARALLEL && allIdempotent(batch)) {
+            List<Future<HttpResponse>> futures = new ArrayList<>(batch.size());
+            for (int i = 1; i < batch.size(); i++) {
+                HttpRequest request = batch.get(i);
+                futures.add(PipelinePool.EXECUTOR.submit(() -> RequestDispatcher.dispatch(server, request)));
+            }
+
+            List<HttpResponse> responses = new ArrayList<>(batch.size());
+            responses.add(RequestDispatcher.dispatch(server, batch.get(0)));
+            for (Future<HttpResponse> f : futures) {
+                try {
+                    responses.add(f.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    responses.add(new ErrorResponseCreator().createResponse(500, "<h1>Internal Server Error</h1>"));
+                } catch (ExecutionException e) {
+                    responses.add(new ErrorResponseCreator().createResponse(500, "<h1>Internal Server Error</h1>"));
+                }
+            }
+            return responses;
+        }
+
+        List<HttpResponse> responses = new ArrayList<>(batch.size());
+        for (HttpRequest request : batch) responses.add(RequestDispatcher.dispatch(server, request));
+        return responses;
+    }
+
+    private static boolean allIdempotent(List<HttpRequest> batch) {
+        for (HttpRequest r : batch) {
+            if (!r.method().equals("GET") && !r.method().equals("HEAD")) return false;
+        }
+        return true;
+    }
+
+    private static void writeStreamBody(HttpResponse response, WritableByteChannel channel, OutputStream out) throws IOException {
+        if (response.streamBody() instanceof FileBody file) {
+            HttpResponseSerializer.transferFile(file, channel);
+        } else if (response.streamBody() instanceof ChunkedBody chunked) {
+            HttpResponseSerializer.writeChunked(chunked, out);
+            out.flush();
+        }
+    }
+
+    // Only created if parallel pipelining is switched on.
+    private static final class PipelinePool {
+        static final ExecutorService EXECUTOR =
+                Executors.newCachedThreadPool(ServerConfig.threadFactory("PipelineDispatch", true));
+    }
+}
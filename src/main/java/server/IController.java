@@ -3,6 +3,13 @@ package server;
 import model.HttpRequest;
 import model.HttpResponse;
 
+import java.util.Map;
+
 public interface IController {
     HttpResponse handle(HttpRequest req);
+
+    // Called instead of handle(req) for routes with {name} segments.
+    default HttpResponse handle(HttpRequest req, Map<String, String> pathParams) {
+        return handle(req);
+    }
 }
@@ -1,6 +1,8 @@
 package server;
 
+import config.ServerConfig;
 import metrics.MetricsCollector;
+import metrics.PinningMonitor;
 import org.json.JSONObject;
 import model.HttpResponse;
 import factory.StaticFileResponseCreator;
@@ -18,6 +20,11 @@ public class MetricsController implements IController {
         o.put("totalRequests", metrics.getTotalRequests());
         o.put("avgResponseMs", metrics.getAvgResponseMs());
         o.put("rps", metrics.getRps());
+        if (ServerConfig.isVirtualThreads()) {
+            o.put("virtualThreadPinnedEvents", PinningMonitor.getPinnedEvents());
+            o.put("virtualThreadPinnedSites", new JSONObject(PinningMonitor.getPinnedSites()));
+        }
+        metrics.getSources().forEach((name, source) -> o.put(name, new JSONObject(source.snapshot())));
         String body = o.toString();
         return new StaticFileResponseCreator("application/json").createResponse(200, body);
     }
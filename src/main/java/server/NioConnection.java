@@ -0,0 +1,35 @@
+package server;
+
+import http.BodyLimit;
+import http.HttpRequestDecoder;
+import http.ReadProgress;
+import http.ResponseWriter;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+final class NioConnection {
+    final SocketChannel channel;
+    final SelectionKey key;
+    final HttpRequestDecoder decoder;
+
+    ByteBuffer pending;
+    final ResponseWriter writer = new ResponseWriter();
+    boolean hasOutbound;
+    FileChannel outFile;
+    long outFilePos;
+    long outFileRemaining;
+    boolean closeAfterWrite;
+    boolean inFlight;
+    int requestsHandled;
+    ConnectionDeadlines.Timer timer;
+    ReadProgress.Phase phase;
+
+    NioConnection(SocketChannel channel, SelectionKey key, BodyLimit bodyLimit) {
+        this.channel = channel;
+        this.key = key;
+        this.decoder = new HttpRequestDecoder(bodyLimit);
+    }
+}
@@ -0,0 +1,327 @@
+package server;
+
+import config.ServerConfig;
+import factory.ErrorResponseCreator;
+import http.BodyTooLargeException;
+import http.HttpParseException;
+import http.ReadProgress;
+import http.ResponseWriter;
+import model.FileBody;
+import model.HttpRequest;
+import model.HttpResponse;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+public class NioServerEngine implements Runnable {
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int BACKLOG = 1024;
+
+    private final HttpServer server;
+    private final ExecutorService handlerPool;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private final Set<NioConnection> connections = new HashSet<>();
+    private final Queue<NioConnection> completed = new ConcurrentLinkedQueue<>();
+    private final ConnectionDeadlines deadlines;
+
+    private final int keepAliveTimeout = ServerConfig.KEEP_ALIVE_TIMEOUT_MS;
+    private final int maxRequests = ServerConfig.MAX_REQUESTS_PER_CONNECTION;
+
+    private volatile boolean running = true;
+
+    public NioServerEngine(HttpServer server, int port, ExecutorService handlerPool) throws IOException {
+        this.server = server;
+        this.handlerPool = handlerPool;
+        this.deadlines = server.deadlines();
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.bind(new InetSocketAddress(port), BACKLOG);
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            serverChannel.close();
+            selector.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void run() {
+        System.out.println("Listening for connections on port " + server.getPort() + " (nio)...");
+        try {
+            while (running) {
+                selector.select(ConnectionDeadlines.TICK_MS);
+                drainCompleted();
+
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid()) continue;
+
+                    try {
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else {
+                            NioConnection c = (NioConnection) key.attachment();
+                            if (key.isReadable()) read(c);
+                            if (key.isValid() && key.isWritable()) flush(c);
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        if (key.attachment() instanceof NioConnection c) close(c);
+                    }
+                }
+
+                deadlines.advance(System.currentTimeMillis());
+            }
+        } catch (IOException e) {
+            if (running) System.err.println("Selector error on port " + server.getPort() + ": " + e.getMessage());
+        } finally {
+            for (NioConnection c : new ArrayList<>(connections)) close(c);
+            try {
+                serverChannel.close();
+            } catch (IOException ignored) {}
+            try {
+                selector.close();
+            } catch (IOException ignored) {}
+        }
+    }
+
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    public int getOpenConnections() {
+        return connections.size();
+    }
+
+    private void accept() throws IOException {
+        SocketChannel ch;
+        while ((ch = serverChannel.accept()) != null) {
+            try {
+                ch.configureBlocking(false);
+                ch.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                SelectionKey key = ch.register(selector, SelectionKey.OP_READ);
+                NioConnection c = new NioConnection(ch, key, server::maxBodyBytes);
+                c.timer = deadlines.open(() -> close(c));
+                c.phase = ReadProgress.Phase.IDLE;
+                key.attach(c);
+                connections.add(c);
+            } catch (IOException e) {
+                try {
+                    ch.close();
+                } catch (IOException ignored) {}
+            }
+        }
+    }
+
+    private void read(NioConnection c) throws IOException {
+        readBuffer.clear();
+        int n = c.channel.read(readBuffer);
+        if (n < 0) {
+            close(c);
+            return;
+        }
+        if (n == 0) return;
+        readBuffer.flip();
+        decodeAndDispatch(c, readBuffer);
+    }
+
+    private void decodeAndDispatch(NioConnection c, ByteBuffer src) {
+        HttpRequest request;
+        try {
+            request = c.decoder.decode(src);
+        } catch (BodyTooLargeException e) {
+            c.pending = null;
+            reject(c, 413, "<h1>Payload Too Large</h1>");
+            return;
+        } catch (HttpParseException e) {
+            c.pending = null;
+            reject(c, 400, "<h1>Bad Request</h1>");
+            return;
+        } catch (IOException e) {
+            System.err.println("Failed to read request body: " + e.getMessage());
+            close(c);
+            return;
+        }
+
+        if (src.hasRemaining()) {
+            if (src != c.pending) {
+                ByteBuffer copy = ByteBuffer.allocate(src.remaining());
+                copy.put(src).flip();
+                c.pending = copy;
+            }
+        } else {
+            c.pending = null;
+        }
+
+        if (request == null) {
+            ReadProgress.Phase phase = c.decoder.phase();
+            if (phase != c.phase) {
+                c.phase = phase;
+                c.timer.reading(phase);
+            }
+            if (c.decoder.takeExpectContinue()) sendContinue(c);
+            return;
+        }
+
+        c.phase = null;
+        c.timer.responding();
+        c.inFlight = true;
+        c.requestsHandled++;
+        c.key.interestOps(0);
+
+        try {
+            handlerPool.execute(() -> handle(c, request));
+        } catch (RejectedExecutionException e) {
+            close(c);
+        }
+    }
+
+    private void handle(NioConnection c, HttpRequest request) {
+        boolean ok = false;
+        boolean willKeepAlive = false;
+        try {
+            HttpResponse response = RequestDispatcher.bufferStreamBody(RequestDispatcher.dispatch(server, request));
+            willKeepAlive = RequestDispatcher.shouldKeepAlive(request, c.requestsHandled, maxRequests);
+            if (response.streamBody() instanceof FileBody file && file.length() > 0) {
+                c.outFile = FileChannel.open(file.path(), StandardOpenOption.READ);
+                c.outFilePos = file.offset();
+                c.outFileRemaining = file.length();
+            }
+            c.writer.add(response, willKeepAlive, keepAliveTimeout, maxRequests - c.requestsHandled);
+            ok = true;
+        } catch (Throwable t) {
+            System.err.println("Failed to serialize response: " + t.getMessage());
+            closeFile(c);
+        } finally {
+            request.release();
+        }
+
+        c.hasOutbound = ok;
+        c.closeAfterWrite = !willKeepAlive || !ok;
+        completed.add(c);
+        selector.wakeup();
+    }
+
+    private void drainCompleted() {
+        NioConnection c;
+        while ((c = completed.poll()) != null) {
+            if (!c.key.isValid()) {
+                closeFile(c);
+                c.writer.close();
+                continue;
+            }
+            if (!c.hasOutbound) {
+                close(c);
+                continue;
+            }
+            try {
+                flush(c);
+            } catch (IOException e) {
+                close(c);
+            }
+        }
+    }
+
+    private void flush(NioConnection c) throws IOException {
+        if (!c.hasOutbound) return;
+
+        if (!c.writer.flush(c.channel)) {
+            c.key.interestOps(SelectionKey.OP_WRITE);
+            return;
+        }
+
+        while (c.outFile != null && c.outFileRemaining > 0) {
+            long n = c.outFile.transferTo(c.outFilePos, c.outFileRemaining, c.channel);
+            if (n <= 0) {
+                if (c.outFilePos >= c.outFile.size()) throw new IOException("File truncated while sending");
+                c.key.interestOps(SelectionKey.OP_WRITE);
+                return;
+            }
+            c.outFilePos += n;
+            c.outFileRemaining -= n;
+        }
+        closeFile(c);
+
+        c.hasOutbound = false;
+        c.inFlight = false;
+        c.phase = ReadProgress.Phase.IDLE;
+        c.timer.reading(ReadProgress.Phase.IDLE);
+
+        if (c.closeAfterWrite) {
+            close(c);
+            return;
+        }
+
+        c.key.interestOps(SelectionKey.OP_READ);
+        if (c.pending != null) decodeAndDispatch(c, c.pending);
+    }
+
+    // Only sent while no response is in flight, so it can't interleave with one; 25 bytes fit any send buffer.
+    private void sendContinue(NioConnection c) {
+        ByteBuffer b = ByteBuffer.wrap(ResponseWriter.CONTINUE);
+        try {
+            for (int i = 0; i < 3 && b.hasRemaining(); i++) c.channel.write(b);
+            if (b.hasRemaining()) close(c);
+        } catch (IOException e) {
+            close(c);
+        }
+    }
+
+    private void reject(NioConnection c, int status, String html) {
+        try {
+            HttpResponse bad = new ErrorResponseCreator().createResponse(status, html);
+            c.timer.responding();
+            c.inFlight = true;
+            c.writer.add(bad, false, keepAliveTimeout, 0);
+            c.hasOutbound = true;
+            c.closeAfterWrite = true;
+            flush(c);
+        } catch (IOException e) {
+            close(c);
+        }
+    }
+
+    private void closeFile(NioConnection c) {
+        if (c.outFile == null) return;
+        try {
+            c.outFile.close();
+        } catch (IOException ignored) {}
+        c.outFile = null;
+        c.outFileRemaining = 0;
+    }
+
+    private void close(NioConnection c) {
+        connections.remove(c);
+        c.timer.close();
+        closeFile(c);
+        c.decoder.reset();
+        if (!c.inFlight) c.writer.close();
+        c.key.cancel();
+        try {
+            c.channel.close();
+        } catch (IOException ignored) {}
+    }
+}
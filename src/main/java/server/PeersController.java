@@ -11,7 +11,6 @@ import org.json.JSONArray;
 import org.json.JSONObject;
 import java.util.Map;
 
-import static http.HttpUtils.tryParseJsonFlat;
 import static http.HttpUtils.getHeaderIgnoreCase;
 
 public class PeersController implements IController {
@@ -55,8 +54,7 @@ public class PeersController implements IController {
             }
             case "POST" -> {
                 if (!admin) return new ErrorResponseCreator().createResponse(403, "{\"error\":\"admin required\"}");
-                String raw = req.body();
-                Map<String, Object> m = tryParseJsonFlat(raw);
+                Map<String, Object> m = req.json();
                 String addr = (String) m.get("address");
                 if (addr == null || addr.isBlank())
                     return new ErrorResponseCreator().createResponse(400, "{\"error\":\"address required\"}");
@@ -66,10 +64,10 @@ public class PeersController implements IController {
             case "DELETE" -> {
                 if (!admin) return new ErrorResponseCreator().createResponse(403, "{\"error\":\"admin required\"}");
                 String id = null;
-                Map<String, Object> q = http.HttpUtils.parseQueryToContext(req);
+                Map<String, Object> q = req.query();
                 if (q.containsKey("id")) id = String.valueOf(q.get("id"));
-                if ((id == null || id.isBlank()) && req.body() != null) {
-                    Map<String, Object> m = tryParseJsonFlat(req.body());
+                if ((id == null || id.isBlank()) && req.hasBody()) {
+                    Map<String, Object> m = req.json();
                     if (m.containsKey("address")) id = (String) m.get("address");
                 }
                 if (id == null || id.isBlank())
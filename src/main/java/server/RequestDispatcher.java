@@ -0,0 +1,168 @@
+package server;
+
+import config.ServerConfig;
+import events.EventBus;
+import events.RequestEvent;
+import events.ResponseEvent;
+import factory.ErrorResponseCreator;
+import http.ContentEncoding;
+import http.ResponseWriter;
+import model.ChunkedBody;
+import model.FileBody;
+import model.HttpRequest;
+import model.HttpResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static http.HttpUtils.getHeaderIgnoreCase;
+
+final class RequestDispatcher {
+    private static final boolean COMPRESSION_ENABLED = ServerConfig.getBoolean("COMPRESSION_ENABLED", true);
+    private static final int COMPRESSION_MIN_BYTES = ServerConfig.getPositiveInt("COMPRESSION_MIN_BYTES", 1024);
+
+    private RequestDispatcher() {}
+
+    static HttpResponse dispatch(HttpServer server, HttpRequest request) {
+        EventBus bus = EventBus.getInstance();
+        long arrived = System.currentTimeMillis();
+        long start = System.nanoTime();
+        HttpResponse response;
+        try {
+            response = server.HandleRequest(request);
+        } catch (Throwable t) {
+            ErrorResponseCreator err = new ErrorResponseCreator();
+            response = err.createResponse(500, "<h1>Internal Server Error</h1>");
+        }
+        long duration = Math.max(0L, System.nanoTime() - start);
+
+        // published once routing has run, so the route id comes from that single trie walk
+        String route = request.route() == null ? Router.NO_ROUTE : request.route();
+        try {
+            bus.publish(new RequestEvent(request.method(), route, Math.max(0, request.bodyLength()), arrived));
+        } catch (Throwable t) {
+            System.err.println("EventBus publish Request failed: " + t.getMessage());
+        }
+
+        if (response == null) {
+            ErrorResponseCreator err = new ErrorResponseCreator();
+            response = err.createResponse(500, "<h1>Internal Server Error</h1>");
+        }
+
+        response = encodeTextBody(response);
+        if (COMPRESSION_ENABLED) response = applyContentEncoding(request, response);
+
+        try {
+            bus.publish(new ResponseEvent(request.method(), route, response.statusCode(), Math.max(0, request.bodyLength()),
+                    bodyLength(response), duration));
+        } catch (Throwable t) {
+            System.err.println("EventBus publish Response failed: " + t.getMessage());
+        }
+
+        return response;
+    }
+
+    private static long bodyLength(HttpResponse response) {
+        if (response.bodyBytes() != null) return response.bodyBytes().length;
+        if (response.streamBody() != null) return response.streamBody().length();
+        return 0;
+    }
+
+    // Encodes a String body once, so compression, the byte count on the event and the writer share the bytes.
+    private static HttpResponse encodeTextBody(HttpResponse response) {
+        if (response.body() == null || response.bodyBytes() != null) return response;
+        return new HttpResponse(response.statusCode(), response.statusMessage(), response.headers(),
+                null, response.body().getBytes(StandardCharsets.UTF_8), response.streamBody(), response.headerBlock());
+    }
+
+    static boolean shouldKeepAlive(HttpRequest request, int requestsHandled, int maxRequests) {
+        String reqConnHeader = getHeaderIgnoreCase(request.headers(), "Connection");
+        String reqVersion = request.version() == null ? "HTTP/1.1" : request.version();
+
+        boolean clientWantsClose = false;
+        boolean clientWantsKeepAlive = false;
+
+        if (reqConnHeader != null) {
+            if (reqConnHeader.equalsIgnoreCase("close")) clientWantsClose = true;
+            if (reqConnHeader.equalsIgnoreCase("keep-alive")) clientWantsKeepAlive = true;
+        }
+
+        boolean defaultPersistent = reqVersion.equalsIgnoreCase("HTTP/1.1");
+
+        boolean willKeepAlive;
+        if (clientWantsClose) {
+            willKeepAlive = false;
+        } else if (clientWantsKeepAlive) {
+            willKeepAlive = true;
+        } else {
+            willKeepAlive = defaultPersistent;
+        }
+
+        if (requestsHandled >= maxRequests) {
+            willKeepAlive = false;
+        }
+        return willKeepAlive;
+    }
+
+    // Compresses dynamic text bodies the client accepts; chunked bodies are compressed while they stream.
+    // A response that already carries Content-Encoding or Vary was negotiated by its controller and is left alone.
+    static HttpResponse applyContentEncoding(HttpRequest request, HttpResponse response) {
+        int status = response.statusCode();
+        if (status < 200 || status == 204 || status == 206 || status == 304) return response;
+        if (response.streamBody() instanceof FileBody) return response;
+        if (response.header("Content-Encoding") != null || response.header("Vary") != null) return response;
+        if (!ContentEncoding.isCompressible(response.header("Content-Type"))) return response;
+
+        ChunkedBody chunked = response.streamBody() instanceof ChunkedBody c ? c : null;
+        byte[] body = chunked == null ? ResponseWriter.bodyBytes(response) : null;
+        if (body != null && body.length < COMPRESSION_MIN_BYTES) return response;
+
+        Map<String, String> headers = new HashMap<>(response.headers());
+        headers.put("Vary", "Accept-Encoding");
+
+        ContentEncoding encoding = ContentEncoding.negotiate(getHeaderIgnoreCase(request.headers(), "Accept-Encoding"));
+        if (encoding == null) {
+            return new HttpResponse(status, response.statusMessage(), headers,
+                    response.body(), response.bodyBytes(), response.streamBody(), response.headerBlock());
+        }
+        headers.put("Content-Encoding", encoding.token());
+
+        if (chunked != null) {
+            ChunkedBody.BodyWriter writer = chunked.writer();
+            return new HttpResponse(status, response.statusMessage(), headers,
+                    null, null, new ChunkedBody(out -> encoding.encode(writer, out)), response.headerBlock());
+        }
+
+        byte[] encoded = encoding.encode(body);
+        if (encoded.length >= body.length) {
+            headers.remove("Content-Encoding");
+            return new HttpResponse(status, response.statusMessage(), headers,
+                    response.body(), response.bodyBytes(), null, response.headerBlock());
+        }
+        headers.put("Content-Length", String.valueOf(encoded.length));
+        return new HttpResponse(status, response.statusMessage(), headers,
+                null, encoded, null, response.headerBlock());
+    }
+
+    // Renders a chunked body into memory, for HTTP/1.0 clients and the NIO engine.
+    static HttpResponse bufferStreamBody(HttpResponse response) {
+        if (!(response.streamBody() instanceof ChunkedBody chunked)) return response;
+
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        try {
+            chunked.writer().writeTo(buf);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to render response body: " + e.getMessage());
+            return new ErrorResponseCreator().createResponse(500, "<h1>Internal Server Error</h1>");
+        }
+
+        Map<String, String> headers = new HashMap<>(response.headers());
+        headers.remove("Transfer-Encoding");
+        headers.put("Content-Length", String.valueOf(buf.size()));
+        return new HttpResponse(response.statusCode(), response.statusMessage(), headers,
+                null, buf.toByteArray(), null, response.headerBlock());
+    }
+}
@@ -1,22 +1,38 @@
 package server;
 
+import chtml.ChtmlEngine;
+import config.ServerConfig;
 import db.RequestsRepository;
 import model.HttpRequest;
 import model.HttpResponse;
 import p2p.PeerNetwork;
 import metrics.MetricsCollector;
 
+import java.nio.file.Path;
+
 public class RequestHandler {
+    private static final long FORM_BODY_LIMIT = 64 * 1024;
+
     private final Router router;
 
     public RequestHandler(Statistics stats, RequestsRepository requestsRepo, PeerNetwork peerNetwork, MetricsCollector metrics) {
         this.router = new Router();
 
         // templates
+        if (metrics != null) metrics.registerSource("templateCache", ChtmlEngine::cacheSnapshot);
         this.router.registerPrefix("GET", "/templates/", new TemplatesController());
 
         // static files
-        this.router.registerPrefix("GET", "/static/", new StaticFilesController());
+        Path publicRoot = Path.of("public");
+        StaticAssetCache staticCache = null;
+        if (ServerConfig.getBoolean("STATIC_CACHE_ENABLED", true)) {
+            staticCache = new StaticAssetCache(
+                    ServerConfig.getPositiveLong("STATIC_CACHE_MAX_BYTES", 32L * 1024 * 1024),
+                    ServerConfig.getPositiveLong("STATIC_CACHE_MAX_ENTRY_BYTES", 1024L * 1024));
+            if (!staticCache.watch(publicRoot)) staticCache = null;
+        }
+        if (staticCache != null && metrics != null) metrics.registerSource("staticCache", staticCache::snapshot);
+        this.router.registerPrefix("GET", "/static/", new StaticFilesController(publicRoot, staticCache));
 
         // sync stats
         SyncController sync = new SyncController(stats);
@@ -33,8 +49,8 @@ public class RequestHandler {
         // contact
         ContactController contact = new ContactController(requestsRepo);
         this.router.registerExact("GET", "/contact", contact);
-        this.router.registerExact("POST", "/contact", contact);
-        this.router.registerExact("PUT", "/contact", contact);
+        this.router.registerExact("POST", "/contact", contact, FORM_BODY_LIMIT);
+        this.router.registerExact("PUT", "/contact", contact, FORM_BODY_LIMIT);
         this.router.registerExact("DELETE", "/contact", contact);
 
         // static pages
@@ -50,6 +66,10 @@ public class RequestHandler {
         }
     }
 
+    public long maxBodyBytes(String method, String url) {
+        return router.maxBodyBytes(method, url);
+    }
+
     public HttpResponse Handle(HttpRequest req) {
         return router.route(req);
     }
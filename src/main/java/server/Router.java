@@ -1,44 +1,231 @@
 package server;
 
+import config.ServerConfig;
 import model.HttpResponse;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
+/*
+ * One radix trie per method. Paths may contain {name} segments, which match one non-empty segment and are
+ * handed to the controller. Lookup ignores the query string, prefers static segments over parameters and
+ * an exact route over a prefix route, and otherwise picks the longest matching prefix. A route may carry
+ * its own request body limit; routes without one use MAX_REQUEST_BODY_BYTES.
+ */
 public class Router {
-    private record RouteKey(String method, String path) {}
-    private final Map<RouteKey, IController> exact = new LinkedHashMap<>();
-    private final Map<RouteKey, IController> prefix = new LinkedHashMap<>();
+    private record Route(String pattern, IController controller, Object[] tokens, boolean hasParams, long maxBodyBytes) {}
+
+    // Route id reported for requests no route matched.
+    public static final String NO_ROUTE = "unmatched";
+
+    private static final class Node {
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        String label;
+        Node[] children = NO_CHILDREN;
+        Node param;
+        String paramName;
+        Route exact;
+        Route prefix;
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        Node child(char c) {
+            for (Node n : children) {
+                if (n.label.charAt(0) == c) return n;
+            }
+            return null;
+        }
+
+        void addChild(Node n) {
+            children = Arrays.copyOf(children, children.length + 1);
+            children[children.length - 1] = n;
+        }
+
+        void replaceChild(Node old, Node n) {
+            for (int i = 0; i < children.length; i++) {
+                if (children[i] == old) children[i] = n;
+            }
+        }
+    }
+
+    private String[] methods = new String[0];
+    private Node[] roots = new Node[0];
 
     public void registerExact(String method, String path, IController controller) {
-        exact.put(new RouteKey(method.toUpperCase(), path), Objects.requireNonNull(controller));
+        registerExact(method, path, controller, ServerConfig.MAX_REQUEST_BODY_BYTES);
+    }
+
+    public void registerExact(String method, String path, IController controller, long maxBodyBytes) {
+        Route route = route(path, controller, maxBodyBytes);
+        insert(method, route).exact = route;
     }
 
     public void registerPrefix(String method, String prefixPath, IController controller) {
-        prefix.put(new RouteKey(method.toUpperCase(), prefixPath), Objects.requireNonNull(controller));
+        registerPrefix(method, prefixPath, controller, ServerConfig.MAX_REQUEST_BODY_BYTES);
+    }
+
+    public void registerPrefix(String method, String prefixPath, IController controller, long maxBodyBytes) {
+        Route route = route(prefixPath, controller, maxBodyBytes);
+        insert(method, route).prefix = route;
+    }
+
+    // Asked by the decoder once the request head is in, before any of the body is read.
+    public long maxBodyBytes(String method, String url) {
+        Route r = lookup(method, url);
+        return r == null ? ServerConfig.MAX_REQUEST_BODY_BYTES : r.maxBodyBytes();
+    }
+
+    private Route lookup(String method, String url) {
+        Node root = root(method);
+        if (root == null) return null;
+        int end = url.indexOf('?');
+        return find(root, url, 0, end < 0 ? url.length() : end);
     }
 
     public HttpResponse route(model.HttpRequest req) {
-        String method = req.method().toUpperCase();
+        Node root = root(req.method());
         String url = req.url();
+        int end = url.indexOf('?');
+        if (end < 0) end = url.length();
+
+        Route r = root == null ? null : find(root, url, 0, end);
+        if (r == null) return new factory.ErrorResponseCreator().createResponse(404, "<h1>404 Not Found</h1>");
+        req.setRoute(r.pattern());
+        if (r.hasParams()) return r.controller().handle(req, params(r, url, end));
+        return r.controller().handle(req);
+    }
 
-        IController c = exact.get(new RouteKey(method, url));
-        if (c != null) return c.handle(req);
+    private static Route find(Node n, String path, int pos, int end) {
+        if (pos == end && n.exact != null) return n.exact;
 
-        IController best = null;
-        int bestLen = -1;
-        for (var e : prefix.entrySet()) {
-            RouteKey k = e.getKey();
-            if (!k.method().equals(method)) continue;
-            String p = k.path();
-            if (url.startsWith(p) && p.length() > bestLen) {
-                bestLen = p.length();
-                best = e.getValue();
+        if (pos < end) {
+            Node c = n.child(path.charAt(pos));
+            if (c != null) {
+                int len = c.label.length();
+                if (pos + len <= end && path.regionMatches(pos, c.label, 0, len)) {
+                    Route r = find(c, path, pos + len, end);
+                    if (r != null) return r;
+                }
             }
+            if (n.param != null) {
+                int segEnd = pos;
+                while (segEnd < end && path.charAt(segEnd) != '/') segEnd++;
+                if (segEnd > pos) {
+                    Route r = find(n.param, path, segEnd, end);
+                    if (r != null) return r;
+                }
+            }
+        }
+        return n.prefix;
+    }
+
+    private static Map<String, String> params(Route r, String path, int end) {
+        Map<String, String> params = new LinkedHashMap<>();
+        int pos = 0;
+        for (Object token : r.tokens()) {
+            if (token instanceof String s) {
+                pos += s.length();
+            } else {
+                int segEnd = pos;
+                while (segEnd < end && path.charAt(segEnd) != '/') segEnd++;
+                params.put(((Param) token).name(), path.substring(pos, segEnd));
+                pos = segEnd;
+            }
+            if (pos >= end) break;
+        }
+        return params;
+    }
+
+    private record Param(String name) {}
+
+    // Splits "/a/{id}/b" into "/a/", Param(id), "/b".
+    private static Route route(String path, IController controller, long maxBodyBytes) {
+        Objects.requireNonNull(controller);
+        if (maxBodyBytes < 0) throw new IllegalArgumentException("Negative body limit for " + path);
+        List<Object> tokens = new ArrayList<>();
+        int pos = 0;
+        boolean hasParams = false;
+        while (pos < path.length()) {
+            int open = path.indexOf('{', pos);
+            if (open < 0) {
+                tokens.add(path.substring(pos));
+                break;
+            }
+            int close = path.indexOf('}', open);
+            if (close < 0 || close == open + 1) throw new IllegalArgumentException("Bad path parameter in " + path);
+            if (open > pos) tokens.add(path.substring(pos, open));
+            tokens.add(new Param(path.substring(open + 1, close)));
+            hasParams = true;
+            pos = close + 1;
+        }
+        return new Route(path.intern(), controller, tokens.toArray(), hasParams, maxBodyBytes);
+    }
+
+    private Node insert(String method, Route route) {
+        Node n = root(method);
+        if (n == null) {
+            n = new Node("");
+            methods = Arrays.copyOf(methods, methods.length + 1);
+            roots = Arrays.copyOf(roots, roots.length + 1);
+            methods[methods.length - 1] = method.toUpperCase();
+            roots[roots.length - 1] = n;
         }
-        if (best != null) return best.handle(req);
 
-        return new factory.ErrorResponseCreator().createResponse(404, "<h1>404 Not Found</h1>");
+        for (Object token : route.tokens()) {
+            if (token instanceof Param p) {
+                if (n.param == null) {
+                    n.param = new Node("");
+                    n.param.paramName = p.name();
+                } else if (!n.param.paramName.equals(p.name())) {
+                    throw new IllegalArgumentException("Conflicting path parameter {" + p.name() + "}, already registered as {" + n.param.paramName + "}");
+                }
+                n = n.param;
+            } else {
+                n = insertStatic(n, (String) token);
+            }
+        }
+        return n;
+    }
+
+    private static Node insertStatic(Node n, String s) {
+        int pos = 0;
+        while (pos < s.length()) {
+            Node c = n.child(s.charAt(pos));
+            if (c == null) {
+                Node leaf = new Node(s.substring(pos));
+                n.addChild(leaf);
+                return leaf;
+            }
+
+            int common = 0;
+            int max = Math.min(c.label.length(), s.length() - pos);
+            while (common < max && c.label.charAt(common) == s.charAt(pos + common)) common++;
+
+            if (common < c.label.length()) {
+                // split the edge: n -> mid(common part) -> c(rest)
+                Node mid = new Node(c.label.substring(0, common));
+                n.replaceChild(c, mid);
+                c.label = c.label.substring(common);
+                mid.addChild(c);
+                c = mid;
+            }
+            n = c;
+            pos += common;
+        }
+        return n;
+    }
+
+    private Node root(String method) {
+        for (int i = 0; i < methods.length; i++) {
+            if (methods[i].equalsIgnoreCase(method)) return roots[i];
+        }
+        return null;
     }
 }
@@ -0,0 +1,230 @@
+package server;
+
+import config.ServerConfig;
+import model.HeaderBlock;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+public class StaticAssetCache {
+    // One representation of a file: its 200 headers and bytes, plus the pre-encoded headers of its 304.
+    public record Variant(HeaderBlock headers, byte[] body, String etag, HeaderBlock notModifiedHeaders) {
+        long size() {
+            return body.length + headers.encoded().length + notModifiedHeaders.encoded().length;
+        }
+    }
+
+    // gzip is null when the file isn't worth compressing.
+    public record Entry(Variant identity, Variant gzip, long lastModified) {
+        long bodyBytes() {
+            return identity.body().length + (gzip == null ? 0 : gzip.body().length);
+        }
+    }
+
+    private final long maxBytes;
+    private final long maxEntryBytes;
+
+    // access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+    private long residentBytes = 0;
+
+    private final AtomicLong version = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    private WatchService watcher;
+
+    public StaticAssetCache(long maxBytes, long maxEntryBytes) {
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = Math.min(maxEntryBytes, maxBytes);
+    }
+
+    public Entry get(Path file) {
+        Entry e;
+        lock.lock();
+        try {
+            e = entries.get(file);
+        } finally {
+            lock.unlock();
+        }
+        if (e != null) hits.increment();
+        else misses.increment();
+        return e;
+    }
+
+    // The per-entry limit counts body bytes (identity plus gzip), so callers can check it before building headers.
+    public boolean accepts(long bodyBytes) {
+        return bodyBytes <= maxEntryBytes;
+    }
+
+    // Taken before reading a file; put() drops the entry if an invalidation happened in between.
+    public long version() {
+        return version.get();
+    }
+
+    // Returns false when the entry was not stored: over the limit, or the file changed since versionAtRead.
+    public boolean put(Path file, Entry entry, long versionAtRead) {
+        if (!accepts(entry.bodyBytes())) return false;
+        long size = sizeOf(entry);
+        if (size > maxBytes) return false;
+
+        lock.lock();
+        try {
+            if (version.get() != versionAtRead) return false;
+
+            Entry old = entries.put(file, entry);
+            if (old != null) residentBytes -= sizeOf(old);
+            residentBytes += size;
+
+            Iterator<Map.Entry<Path, Entry>> it = entries.entrySet().iterator();
+            while (residentBytes > maxBytes && it.hasNext()) {
+                Map.Entry<Path, Entry> eldest = it.next();
+                if (eldest.getKey().equals(file)) continue;
+                residentBytes -= sizeOf(eldest.getValue());
+                it.remove();
+                evictions.increment();
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidate(Path path) {
+        lock.lock();
+        try {
+            version.incrementAndGet();
+            Iterator<Map.Entry<Path, Entry>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Path, Entry> e = it.next();
+                if (e.getKey().startsWith(path)) {
+                    residentBytes -= sizeOf(e.getValue());
+                    it.remove();
+                    invalidations.increment();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            version.incrementAndGet();
+            invalidations.add(entries.size());
+            entries.clear();
+            residentBytes = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean watch(Path root) {
+        try {
+            watcher = FileSystems.getDefault().newWatchService();
+            registerTree(root);
+        } catch (IOException e) {
+            System.err.println("Static cache watch failed for " + root + ": " + e.getMessage() + " — cache disabled");
+            close();
+            watcher = null;
+            return false;
+        }
+
+        Thread t = ServerConfig.threadFactory("StaticCacheWatcher", true).newThread(this::watchLoop);
+        t.start();
+        return true;
+    }
+
+    public void close() {
+        if (watcher == null) return;
+        try {
+            watcher.close();
+        } catch (IOException ignored) {}
+    }
+
+    public Map<String, Object> snapshot() {
+        long h = hits.sum();
+        long m = misses.sum();
+        Map<String, Object> s = new LinkedHashMap<>();
+        s.put("hits", h);
+        s.put("misses", m);
+        s.put("hitRate", h + m == 0 ? 0.0 : (double) h / (h + m));
+        s.put("evictions", evictions.sum());
+        s.put("invalidations", invalidations.sum());
+        lock.lock();
+        try {
+            s.put("entries", entries.size());
+            s.put("residentBytes", residentBytes);
+        } finally {
+            lock.unlock();
+        }
+        s.put("maxBytes", maxBytes);
+        return s;
+    }
+
+    private void watchLoop() {
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                Path dir = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        invalidateAll();
+                        continue;
+                    }
+                    Path changed = dir.resolve((Path) event.context()).normalize();
+                    invalidate(changed);
+                    // "<name>.gz" is served as the gzip variant of "<name>", which is cached under that name
+                    String name = changed.getFileName().toString();
+                    if (name.endsWith(".gz") && name.length() > 3) {
+                        invalidate(changed.resolveSibling(name.substring(0, name.length() - 3)));
+                    }
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(changed)) {
+                        try {
+                            registerTree(changed);
+                        } catch (IOException e) {
+                            System.err.println("Static cache watch failed for " + changed + ": " + e.getMessage());
+                        }
+                    }
+                }
+                if (!key.reset()) invalidate(dir);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException ignored) {
+        }
+    }
+
+    private void registerTree(Path root) throws IOException {
+        try (Stream<Path> dirs = Files.walk(root)) {
+            for (Path dir : (Iterable<Path>) dirs.filter(Files::isDirectory)::iterator) {
+                dir.normalize().register(watcher,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+        }
+    }
+
+    private static long sizeOf(Entry e) {
+        return e.identity().size() + (e.gzip() == null ? 0 : e.gzip().size());
+    }
+}
@@ -1,5 +1,8 @@
 package server;
 
+import http.ByteRange;
+import http.ContentEncoding;
+import http.Validators;
 import model.HttpRequest;
 import model.HttpResponse;
 import factory.ErrorResponseCreator;
@@ -8,22 +11,36 @@ import factory.StaticFileResponseCreator;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
 import java.util.Locale;
+import java.util.Map;
+
+import static http.HttpUtils.formatHttpDate;
+import static http.HttpUtils.getHeaderIgnoreCase;
 
 public class StaticFilesController implements IController {
     private final Path publicRoot;
+    private final StaticAssetCache cache;
 
     public StaticFilesController() {
         this(Path.of("public"));
     }
 
     public StaticFilesController(Path publicRoot) {
+        this(publicRoot, null);
+    }
+
+    public StaticFilesController(Path publicRoot, StaticAssetCache cache) {
         this.publicRoot = publicRoot;
+        this.cache = cache;
     }
 
     @Override
     public HttpResponse handle(HttpRequest req) {
         String url = req.url();
+        int query = url.indexOf('?');
+        if (query >= 0) url = url.substring(0, query);
 
         String rel = url.substring("/static/".length());
         rel = rel.replaceAll("\\.\\./", "");
@@ -35,22 +52,159 @@ public class StaticFilesController implements IController {
             return new ErrorResponseCreator().createResponse(403, "<h1>Forbidden</h1>");
         }
 
-        if (!Files.exists(file) || !Files.isRegularFile(file)) {
+        Map<String, String> headers = req.headers();
+        String rangeHeader = getHeaderIgnoreCase(headers, "Range");
+        String ifNoneMatch = getHeaderIgnoreCase(headers, "If-None-Match");
+        String ifModifiedSince = getHeaderIgnoreCase(headers, "If-Modified-Since");
+        boolean gzipOk = ContentEncoding.GZIP.acceptedBy(getHeaderIgnoreCase(headers, "Accept-Encoding"));
+
+        // a hit answers revalidations and plain GETs without touching the file system
+        StaticAssetCache.Entry hit = cache != null ? cache.get(file) : null;
+        if (hit != null) {
+            StaticAssetCache.Variant v = gzipOk && hit.gzip() != null ? hit.gzip() : hit.identity();
+            if (Validators.notModified(ifNoneMatch, ifModifiedSince, v.etag(), hit.lastModified())) {
+                return StaticFileResponseCreator.createNotModifiedResponse(v.notModifiedHeaders());
+            }
+            if (rangeHeader == null) return StaticFileResponseCreator.createPreEncodedResponse(200, v.headers(), v.body());
+        }
+
+        boolean cacheable = cache != null && rangeHeader == null;
+        long cacheVersion = cacheable ? cache.version() : 0;
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
             return new ErrorResponseCreator().createResponse(404, "<h1>File not Found</h1>");
         }
+        if (!attrs.isRegularFile()) {
+            return new ErrorResponseCreator().createResponse(404, "<h1>File not Found</h1>");
+        }
+
+        long size = attrs.size();
+        long mtime = attrs.lastModifiedTime().toMillis();
+        String etag = Validators.fileTag(size, mtime);
+        String lastModified = formatHttpDate(attrs.lastModifiedTime().toInstant());
+        String mime = detectMimeByName(file.getFileName().toString());
+        StaticFileResponseCreator creator = new StaticFileResponseCreator(mime);
+        boolean compressible = ContentEncoding.isCompressible(mime);
+
+        Map<String, String> extra = new LinkedHashMap<>();
+        extra.put("Accept-Ranges", "bytes");
+        extra.put("Last-Modified", lastModified);
+        extra.put("ETag", etag);
+        if (compressible) extra.put("Vary", "Accept-Encoding");
+
+        boolean cacheFill = cacheable && cache.accepts(size);
+        BasicFileAttributes gzAttrs = compressible && (gzipOk || cacheFill) ? precompressedAttributes(file, attrs) : null;
+
+        // revalidation is answered from the attributes alone, before the file is opened
+        if (gzipOk && compressible && ifNoneMatch != null && Validators.matches(ifNoneMatch, gzipTag(etag, gzAttrs))) {
+            return creator.createNotModifiedResponse(notModifiedHeaders(gzipHeaders(extra, gzipTag(etag, gzAttrs))));
+        }
+        if (Validators.notModified(ifNoneMatch, ifModifiedSince, etag, mtime)) {
+            return creator.createNotModifiedResponse(notModifiedHeaders(extra));
+        }
+
+        if (cacheFill) {
+            byte[] bytes;
+            try {
+                bytes = Files.readAllBytes(file);
+            } catch (IOException e) {
+                return new ErrorResponseCreator().createResponse(404, "<h1>File not Found</h1>");
+            }
+            byte[] gz = null;
+            if (gzAttrs != null) {
+                try {
+                    gz = Files.readAllBytes(gzipSibling(file));
+                } catch (IOException e) {
+                    gzAttrs = null;
+                }
+            }
+            if (gz == null && compressible) gz = compress(bytes);
+            if (gz != null && !cache.accepts(bytes.length + gz.length)) gz = null;
+
+            StaticAssetCache.Variant identity = variant(creator, extra, bytes);
+            StaticAssetCache.Variant gzip = gz == null ? null : variant(creator, gzipHeaders(extra, gzipTag(etag, gzAttrs)), gz);
+            cache.put(file, new StaticAssetCache.Entry(identity, gzip, mtime), cacheVersion);
+
+            StaticAssetCache.Variant v = gzipOk && gzip != null ? gzip : identity;
+            return StaticFileResponseCreator.createPreEncodedResponse(200, v.headers(), v.body());
+        }
+
+        if (rangeHeader == null && gzipOk && gzAttrs != null) {
+            return creator.createFileResponse(200, gzipSibling(file), 0, gzAttrs.size(), gzipHeaders(extra, gzipTag(etag, gzAttrs)));
+        }
+
+        ByteRange range = ByteRange.parse(rangeHeader, size);
+        if (range != null && !ifRangeMatches(getHeaderIgnoreCase(headers, "If-Range"), lastModified, etag)) {
+            range = null;
+        }
+
+        if (range == null) {
+            return creator.createFileResponse(200, file, 0, size, extra);
+        }
+        if (range == ByteRange.UNSATISFIABLE) {
+            extra.put("Content-Range", "bytes */" + size);
+            return creator.createFileResponse(416, file, 0, 0, extra);
+        }
 
+        extra.put("Content-Range", range.contentRange(size));
+        return creator.createFileResponse(206, file, range.start(), range.length(), extra);
+    }
+
+    private static StaticAssetCache.Variant variant(StaticFileResponseCreator creator, Map<String, String> extra, byte[] body) {
+        return new StaticAssetCache.Variant(creator.createHeaderBlock(body.length, extra), body,
+                extra.get("ETag"), creator.createNotModifiedHeaderBlock(notModifiedHeaders(extra)));
+    }
+
+    private static byte[] compress(byte[] bytes) {
+        byte[] gz = ContentEncoding.GZIP.encode(bytes);
+        return gz.length < bytes.length ? gz : null;
+    }
 
+    private static Path gzipSibling(Path file) {
+        return file.resolveSibling(file.getFileName() + ".gz");
+    }
+
+    // A "<name>.gz" built ahead of time is used when it is at least as new as the file; otherwise compress once here.
+    private static BasicFileAttributes precompressedAttributes(Path file, BasicFileAttributes attrs) {
         try {
-            byte[] bytes = Files.readAllBytes(file);
-            String mime = detectMimeByName(file.getFileName().toString());
+            BasicFileAttributes gzAttrs = Files.readAttributes(gzipSibling(file), BasicFileAttributes.class);
+            if (gzAttrs.isRegularFile() && gzAttrs.lastModifiedTime().compareTo(attrs.lastModifiedTime()) >= 0) return gzAttrs;
+        } catch (IOException ignored) {
+        }
+        return null;
+    }
+
+    // Bytes compressed here follow from the file, so its tag covers them; a .gz on disk is tagged by its own attributes.
+    private static String gzipTag(String etag, BasicFileAttributes gzAttrs) {
+        if (gzAttrs == null) return Validators.gzipTag(etag);
+        return Validators.gzipTag(Validators.fileTag(gzAttrs.size(), gzAttrs.lastModifiedTime().toMillis()));
+    }
 
-            StaticFileResponseCreator creator = new StaticFileResponseCreator(mime);
+    private static Map<String, String> gzipHeaders(Map<String, String> extra, String etag) {
+        Map<String, String> headers = new LinkedHashMap<>(extra);
+        headers.remove("Accept-Ranges");
+        headers.put("ETag", etag);
+        headers.put("Content-Encoding", ContentEncoding.GZIP.token());
+        return headers;
+    }
 
-            return creator.createResponse(200, bytes);
-        } catch (IOException e) {
-            System.err.println("Failed to read static file: " + e.getMessage());
-            return new ErrorResponseCreator().createResponse(500, "<h1>Internal Server Error</h1>");
+    // A 304 repeats the validators and Vary of the 200 it stands for, nothing about the body.
+    private static Map<String, String> notModifiedHeaders(Map<String, String> extra) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (String name : new String[]{"ETag", "Last-Modified", "Vary"}) {
+            String v = extra.get(name);
+            if (v != null) headers.put(name, v);
         }
+        return headers;
+    }
+
+    private static boolean ifRangeMatches(String ifRange, String lastModified, String etag) {
+        if (ifRange == null) return true;
+        String v = ifRange.trim();
+        if (v.startsWith("\"") || v.startsWith("W/")) return Validators.strongMatch(v, etag);
+        return v.equals(lastModified);
     }
 
     private static String detectMimeByName(String name) {
@@ -66,4 +220,4 @@ public class StaticFilesController implements IController {
         if (n.endsWith(".txt")) return "text/plain; charset=UTF-8";
         return "application/octet-stream";
     }
-}
\ No newline at end of file
+}
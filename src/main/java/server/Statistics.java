@@ -1,7 +1,6 @@
 package server;
 
 import db.StatisticsRepository;
-import model.HttpRequest;
 
 import java.time.Instant;
 import java.util.*;
@@ -27,13 +26,13 @@ public class Statistics {
         }
     }
 
-    public void logRequest(HttpRequest req) {
+    public void logRequest(String method, String route, long timeMillis) {
         long id = generateId();
         ids.add(id);
 
         if (repository != null) {
-            String timestamp = Instant.now().toString();
-            repository.saveRequest(id, req.method(), req.url(), timestamp);
+            String timestamp = Instant.ofEpochMilli(timeMillis).toString();
+            repository.saveRequest(id, method, route, timestamp);
         }
     }
 
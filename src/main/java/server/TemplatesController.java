@@ -1,14 +1,19 @@
 package server;
 
 import chtml.ChtmlEngine;
+import chtml.TemplateNode;
 import factory.ErrorResponseCreator;
-import factory.HttpResponseCreator;
 import factory.TemplateResponseCreator;
+import http.Validators;
 import model.HttpRequest;
 import model.HttpResponse;
 
+import java.time.Instant;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
+import static http.HttpUtils.formatHttpDate;
+import static http.HttpUtils.getHeaderIgnoreCase;
 import static http.HttpUtils.parseQueryToContext;
 import static http.HttpUtils.escapeHtml;
 
@@ -28,14 +33,35 @@ public class TemplatesController implements IController {
             Map<String, Object> ctx = parseQueryToContext(req);
             ctx.putIfAbsent("name", "Guest");
             ctx.putIfAbsent("count", 0);
-            String out = ChtmlEngine.render(tplName, ctx);
+            TemplateNode root = ChtmlEngine.load(tplName);
 
-            HttpResponseCreator creator = new TemplateResponseCreator();
-            return creator.createResponse(200, out);
+            TemplateResponseCreator creator = new TemplateResponseCreator();
+            Map<String, String> validators = validators(tplName, raw);
+            if (!validators.isEmpty() && Validators.notModified(getHeaderIgnoreCase(req.headers(), "If-None-Match"),
+                    getHeaderIgnoreCase(req.headers(), "If-Modified-Since"), validators.get("ETag"), ChtmlEngine.templateVersion(tplName))) {
+                return creator.createNotModifiedResponse(validators);
+            }
+            return creator.createStreamingResponse(200, validators, out -> ChtmlEngine.render(root, ctx, out));
         } catch (Exception e) {
             ErrorResponseCreator err = new ErrorResponseCreator();
             String msg = "<h1>Template render error</h1><pre>" + escapeHtml(e.getMessage()) + "</pre>";
             return err.createResponse(500, msg);
         }
     }
+
+    // The output depends only on the template and the query string, so both go into the tag.
+    // It is weak because the gzip and identity encodings of a render share it.
+    private static Map<String, String> validators(String tplName, String url) {
+        long version = ChtmlEngine.templateVersion(tplName);
+        if (version < 0) return Map.of();
+
+        long hash = 0xcbf29ce484222325L;
+        for (int i = url.indexOf('?') + 1; i > 0 && i < url.length(); i++) {
+            hash = (hash ^ url.charAt(i)) * 0x100000001b3L;
+        }
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("ETag", "W/\"" + Long.toHexString(version) + "-" + Long.toHexString(hash) + "\"");
+        headers.put("Last-Modified", formatHttpDate(Instant.ofEpochMilli(version)));
+        return headers;
+    }
 }
\ No newline at end of file